@@ -0,0 +1,428 @@
+package project4;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * This class represents a self balancing (AVL) Binary Search Tree of generic type.
+ * It keeps the height of every subtree and rebalances the tree with the same
+ * left left, left right, right left and right right rotations used by the
+ * mountain, after every add and every remove.
+ * The height of the tree is always O(logN), so contains, floor, ceiling,
+ * higher and lower stay O(logN) even when the elements are added in sorted order.
+ * Nodes that are shared with a snapshot are copied before they are changed,
+ * including the ones moved by a rotation.
+ *
+ * @param <E>
+ */
+public class AVLBST<E extends Comparable<E>> extends BST<E> {
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the natural ordering of its elements.
+	 */
+	public AVLBST () {
+		super();
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator.
+	 */
+	public AVLBST (Comparator<E> comparator) {
+		super(comparator);
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator,
+	 * that keeps the prefix of every key in its node.
+	 *
+	 * @param comparator the ordering of the elements, null for the natural ordering
+	 * @param keyPrefix the prefix of the keys, it has to agree with the ordering
+	 */
+	public AVLBST (Comparator<E> comparator, KeyPrefix<? super E> keyPrefix) {
+		super(comparator, keyPrefix);
+	}
+
+	/**
+	 * Constructs a new tree containing the elements in the specified collection,
+	 * sorted according to the natural ordering of its elements.
+	 *
+	 * @param collection is the array of elements the new tree will be consturcted from
+	 *
+	 * @throws NullPointerException
+	 */
+	public AVLBST (E[] collection) throws NullPointerException {
+		super(collection);
+	}
+
+	/**
+	 * Constructs a new tree containing the elements in the specified collection,
+	 * sorted according to the natural ordering of its elements.
+	 *
+	 * @param collection the elements the new tree will be constructed from
+	 *
+	 * @throws NullPointerException if the collection or one of its elements is null
+	 */
+	public AVLBST (Collection<? extends E> collection) throws NullPointerException {
+		super(collection);
+	}
+
+	/**
+	 * Adds the specified element to this tree if it is not already present
+	 * and rebalances every node on the path back to the root.
+	 * If this tree already contains the element, the call leaves the
+	 * tree unchanged and returns false.
+	 *
+	 * @param data element to be added to this tree
+	 *
+	 * @return true if this tree did not already contain the specified element
+	 *
+	 * @throws NullPointerException if the specified element is null
+	 */
+	@Override
+	public boolean add (E data) throws NullPointerException {
+		if (data == null) {
+			throw new NullPointerException("Null values cannot be added to the tree.");
+		}
+		int before = size();
+		root = addRec(root, data, prefixOf(data));
+		return size() != before;
+	}
+
+	/**
+	 * Recursive add method that returns the new root of the subtree, or the
+	 * same node if the element is already in it. The sizes of the subtrees tell
+	 * whether the element was added, a node is copied only if it was.
+	 *
+	 * @param node root of the current subtree
+	 * @param data element to be added
+	 * @param prefix prefix of the element
+	 * @return the root of the subtree after rebalancing
+	 */
+	private BSTNode addRec (BSTNode node, E data, long prefix) {
+		if (node == null) {
+			return new BSTNode(data);
+		}
+		int cmp = compare(data, prefix, node);
+		if (cmp < 0) {
+			int before = size(node.left);
+			BSTNode left = addRec(node.left, data, prefix);
+			if (size(left) == before)
+				return node; // already in the tree, nothing below was copied
+			node = editable(node);
+			node.left = left;
+		}
+		else if (cmp > 0) {
+			int before = size(node.right);
+			BSTNode right = addRec(node.right, data, prefix);
+			if (size(right) == before)
+				return node;
+			node = editable(node);
+			node.right = right;
+		}
+		else {
+			return node; // already in the tree, nothing changed below
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Removes the specified element from this tree if it is present
+	 * and rebalances every node on the path back to the root.
+	 *
+	 * @param o object to be removed from this tree
+	 * @return true if there was an element equal to the object, false otherwise
+	 * @throws NullPointerException if the object is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove (Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("Cannot remove a null element from the tree.");
+		}
+		int before = size();
+		root = removeRec(root, (E) o, prefixOf((E) o));
+		return size() != before;
+	}
+
+	/**
+	 * Recursive remove method that replaces a node with two children
+	 * by its inorder successor and returns the new root of the subtree, or
+	 * the same node if the element is not in it. The sizes of the subtrees tell
+	 * whether the element was removed, a node is copied only if it was.
+	 *
+	 * @param node root of the current subtree
+	 * @param value element to be removed
+	 * @param prefix prefix of the element
+	 * @return the root of the subtree after rebalancing
+	 */
+	private BSTNode removeRec (BSTNode node, E value, long prefix) {
+		if (node == null) {
+			return null;
+		}
+		int cmp = compare(value, prefix, node);
+		if (cmp < 0) {
+			int before = size(node.left);
+			BSTNode left = removeRec(node.left, value, prefix);
+			if (size(left) == before)
+				return node; // not in the tree, nothing below was copied
+			node = editable(node);
+			node.left = left;
+		}
+		else if (cmp > 0) {
+			int before = size(node.right);
+			BSTNode right = removeRec(node.right, value, prefix);
+			if (size(right) == before)
+				return node;
+			node = editable(node);
+			node.right = right;
+		}
+		else {
+			if (node.left == null)
+				return node.right;
+			if (node.right == null)
+				return node.left;
+			// replace by the smallest element of the right subtree
+			BSTNode successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			node = editable(node);
+			node.data = successor.data;
+			node.prefix = successor.prefix;
+			node.right = removeRec(node.right, successor.data, successor.prefix);
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Splits this tree at the given key in O(logN). This tree keeps the
+	 * elements that are less than the key, the returned tree gets the
+	 * elements that are greater than or equal to it.
+	 * Both trees are balanced. The nodes are moved, not copied, except the
+	 * ones that are shared with a snapshot.
+	 *
+	 * @param key boundary of the two trees
+	 * @return a new tree with the elements greater than or equal to the key
+	 * @throws NullPointerException if the key is null
+	 */
+	public AVLBST<E> split (E key) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("Cannot split the tree at a null value.");
+		}
+		AVLBST<E> upper = new AVLBST<>(comparator, keyPrefix);
+		// the two trees never share a node after the split, so they can share the owner token
+		upper.owner = this.owner;
+		root = splitRec(root, key, prefixOf(key), upper);
+		return upper;
+	}
+
+	/**
+	 * Recursive split method. Returns the subtree of the elements less
+	 * than the key and leaves the subtree of the other elements in upper.root.
+	 *
+	 * @param node root of the current subtree
+	 * @param key boundary of the two trees
+	 * @param prefix prefix of the key
+	 * @param upper tree that receives the elements greater than or equal to the key
+	 * @return the root of the elements less than the key
+	 */
+	private BSTNode splitRec (BSTNode node, E key, long prefix, AVLBST<E> upper) {
+		if (node == null) {
+			upper.root = null;
+			return null;
+		}
+		if (compare(key, prefix, node) <= 0) {
+			BSTNode lower = splitRec(node.left, key, prefix, upper);
+			upper.root = join(upper.root, node, node.right);
+			return lower;
+		}
+		BSTNode lower = splitRec(node.right, key, prefix, upper);
+		return join(node.left, node, lower);
+	}
+
+	/**
+	 * Returns a new tree with the elements of both trees in O(logN).
+	 * Every element of left has to be less than every element of right.
+	 * The two trees are not changed: like a snapshot, the new tree shares
+	 * their nodes, and each of the three trees copies a shared node before
+	 * it changes it.
+	 *
+	 * @param left tree with the smaller elements
+	 * @param right tree with the greater elements
+	 * @return a balanced tree with the elements of both trees
+	 * @throws NullPointerException if one of the trees is null
+	 * @throws IllegalArgumentException if the ranges of the trees overlap or the trees have different comparators or key prefixes
+	 */
+	public static <E extends Comparable<E>> AVLBST<E> join (AVLBST<E> left, AVLBST<E> right)
+			throws NullPointerException, IllegalArgumentException {
+		if (left == null || right == null) {
+			throw new NullPointerException("Cannot join a null tree.");
+		}
+		if (!Objects.equals(left.comparator, right.comparator) || !Objects.equals(left.keyPrefix, right.keyPrefix)) {
+			throw new IllegalArgumentException("Cannot join trees that are ordered differently.");
+		}
+		if (!left.isEmpty() && !right.isEmpty() && left.compare(left.last(), right.first()) >= 0) {
+			throw new IllegalArgumentException("The elements of the left tree have to be less than the elements of the right tree.");
+		}
+		AVLBST<E> result = new AVLBST<>(left.comparator, left.keyPrefix);
+		// from now on the nodes of both trees are shared
+		left.owner = new Object();
+		right.owner = new Object();
+		result.root = result.join(left.root, right.root);
+		return result;
+	}
+
+	/**
+	 * Joins two subtrees whose elements are all in order, using the first
+	 * element of the right one as the middle node.
+	 *
+	 * @param left root of the smaller elements
+	 * @param right root of the greater elements
+	 * @return the root of the joined subtree
+	 */
+	private BSTNode join (BSTNode left, BSTNode right) {
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		BSTNode first = right;
+		while (first.left != null) {
+			first = first.left;
+		}
+		E middle = first.data;
+		right = removeRec(right, middle, first.prefix);
+		return join(left, new BSTNode(middle), right);
+	}
+
+	/**
+	 * Joins two subtrees and a middle node between them. The shorter
+	 * subtree is hung below the spine of the higher one where the heights
+	 * match, and the nodes on the way back up are rebalanced, so the cost
+	 * is the difference of the heights.
+	 *
+	 * @param left root of the elements less than middle
+	 * @param middle node between the two subtrees, its children are replaced
+	 * @param right root of the elements greater than middle
+	 * @return the root of the joined subtree
+	 */
+	private BSTNode join (BSTNode left, BSTNode middle, BSTNode right) {
+		int leftHeight = left == null ? -1 : left.height;
+		int rightHeight = right == null ? -1 : right.height;
+		if (leftHeight > rightHeight + 1) {
+			left = editable(left);
+			left.right = join(left.right, middle, right);
+			return rebalance(left);
+		}
+		if (rightHeight > leftHeight + 1) {
+			right = editable(right);
+			right.left = join(left, middle, right.left);
+			return rebalance(right);
+		}
+		middle = editable(middle);
+		middle.left = left;
+		middle.right = right;
+		update(middle);
+		return middle;
+	}
+
+	/**
+	 * Trees built from this one, like the result of union, are balanced too.
+	 */
+	@Override
+	protected BST<E> newTree () {
+		return new AVLBST<>(comparator, keyPrefix);
+	}
+
+	/**
+	 * Updates the height, size and content hash of a node and performs the rotation
+	 * needed if its balance factor became -2 or 2.
+	 *
+	 * @param node root of the subtree to be checked
+	 * @return the root of the balanced subtree
+	 */
+	protected BSTNode rebalance (BSTNode node) {
+		update(node);
+		int balance = node.balanceFactor();
+		// left subtree is too high
+		if (balance == -2) {
+			if (node.left.balanceFactor() <= 0) {
+				return rotateLL(node);
+			}
+			return rotateLR(node);
+		}
+		// right subtree is too high
+		if (balance == 2) {
+			if (node.right.balanceFactor() >= 0) {
+				return rotateRR(node);
+			}
+			return rotateRL(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Performs left left rotation on a node.
+	 * @param A node is the root of the subtree to be rotated.
+	 * @return pointer for the new root of the rotated subtree.
+	 */
+	protected BSTNode rotateLL (BSTNode A) {
+		A = editable(A);
+		BSTNode B = editable(A.left); // copy left child of A
+		A.left = B.right; // left point A to right child of B
+		B.right = A; // right point B to A
+		// Update the rotated nodes, lower one first
+		update(A);
+		update(B);
+		return B;
+	}
+
+	/**
+	 * Performs left right rotation on a node.
+	 * @param A node is the root of the subtree to be rotated.
+	 * @return pointer for the new root of the rotated subtree.
+	 */
+	protected BSTNode rotateLR (BSTNode A) {
+		A = editable(A);
+		A.left = rotateRR(A.left);
+		return rotateLL(A);
+	}
+
+	/**
+	 * Performs right left rotation on a node.
+	 * @param A node is the root of the subtree to be rotated.
+	 * @return pointer for the new root of the rotated subtree.
+	 */
+	protected BSTNode rotateRL (BSTNode A) {
+		A = editable(A);
+		A.right = rotateLL(A.right);
+		return rotateRR(A);
+	}
+
+	/**
+	 * Performs right right rotation on a node.
+	 * @param A node is the root of the subtree to be rotated.
+	 * @return pointer for the new root of the rotated subtree.
+	 */
+	protected BSTNode rotateRR (BSTNode A) {
+		A = editable(A);
+		BSTNode B = editable(A.right); // copy right child of A
+		A.right = B.left; // right point A to left child of B
+		B.left = A; // left point B to A
+		// Update the rotated nodes, lower one first
+		update(A);
+		update(B);
+		return B;
+	}
+
+	/**
+	 * Recomputes the height, size and content hash of a node from its children.
+	 * @param node node to be updated
+	 */
+	protected void update (BSTNode node) {
+		node.updateHeight();
+		node.updateSize();
+		node.updateHash();
+	}
+}
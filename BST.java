@@ -1,11 +1,31 @@
 package project4;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Stack;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32C;
 /**
  * This class represents a Binary Search Tree of generic type.
  * It contains a BSTNode class with methods for handling the nodes, and also
@@ -21,8 +41,16 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 	protected BSTNode root;   //reference to the root node of the tree 
 	protected Comparator<E> comparator;   //comparator object to overwrite the 
 	//natural ordering of the elements 
-	private boolean found;  //helper variable used by the remove methods
-	private boolean added ; //helper variable used by the add method 
+	protected Object owner = new Object(); //token of the nodes this tree may change in place,
+	//nodes with another owner are shared with a snapshot and are copied before a change
+	protected KeyPrefix<? super E> keyPrefix; //packs the start of every key into its node,
+	//null if the keys are only compared with compareTo or the comparator
+
+	private static final int SNAPSHOT_MAGIC = 0x42535453; //"BSTS", first bytes of a file written by save
+	private static final int SNAPSHOT_VERSION = 1;
+	private static final int SNAPSHOT_CHECKSUM = 1; //flag of a file that ends with a CRC32C
+	private static final int SNAPSHOT_HEADER = 20; //magic, version, flags and number of elements
+	private static final int SNAPSHOT_BUFFER = 1 << 20; //bytes read or written at once
 
 
 	/**
@@ -41,25 +69,113 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 		this.comparator = comparator;
 	}
 
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator,
+	 * that keeps the prefix of every key in its node. A descent compares the
+	 * prefixes first and only reads the keys, and calls compareTo or the
+	 * comparator, when the prefixes are equal.
+	 * 
+	 * @param comparator the ordering of the elements, null for the natural ordering
+	 * @param keyPrefix the prefix of the keys, it has to agree with the ordering
+	 */
+	public BST (Comparator<E> comparator, KeyPrefix<? super E> keyPrefix) {
+		this.root = null;
+		this.comparator = comparator;
+		this.keyPrefix = keyPrefix;
+	}
+
 	/**
 	 * Constructs a new tree containing the elements in the specified collection, sorted according to the natural ordering of its elements. 
 	 * All elements inserted into the tree must implement the Comparable interface.
 	 * This operation should be O(N logN) where N is the number of elements in the collection. 
 	 * This implies, that the tree that is constructed has to have the high that is approximately logN, not N.
+	 * Duplicate elements are added only once and the given array is not modified.
 	 * 
 	 * @param collection is the array of elements the new tree will be consturcted from
 	 * 
-	 * @throws NullPointerException
+	 * @throws NullPointerException if the array or one of its elements is null
 	 */
 	public BST (E[] collection) throws NullPointerException {
-		int len = collection.length;
-		if (len == 0) {
-			throw new NullPointerException("Collection cannot be empty.");
-		}
-		Arrays.sort(collection);
-		this.root = sortedArrToBST(collection, 0, collection.length-1);
+		this(collection, false);
+	}
+
+	/**
+	 * Constructs a new tree containing the elements in the specified array.
+	 * If the array is known to be sorted the sort is skipped and the tree is
+	 * built in O(N), otherwise it is sorted with Arrays.parallelSort first.
+	 * Duplicate elements are added only once and the given array is not modified.
+	 * 
+	 * @param collection is the array of elements the new tree will be constructed from
+	 * @param sorted true if the array is already in ascending order
+	 * 
+	 * @throws NullPointerException if the array or one of its elements is null
+	 * @throws IllegalArgumentException if sorted is true but the array is not in ascending order
+	 */
+	public BST (E[] collection, boolean sorted) throws NullPointerException, IllegalArgumentException {
+		bulkLoad(collection.clone(), sorted);
+	}
 
+	/**
+	 * Constructs a new tree containing the elements in the specified collection,
+	 * sorted according to the natural ordering of its elements.
+	 * Duplicate elements are added only once.
+	 * 
+	 * @param collection the elements the new tree will be constructed from
+	 * 
+	 * @throws NullPointerException if the collection or one of its elements is null
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public BST (Collection<? extends E> collection) throws NullPointerException {
+		bulkLoad((E[]) collection.toArray(new Comparable[0]), false);
+	}
+
+	/**
+	 * Constructs a new tree containing the elements of the specified stream,
+	 * sorted according to the natural ordering of its elements.
+	 * A parallel stream is also collected in parallel. Duplicate elements are added only once.
+	 * 
+	 * @param stream the elements the new tree will be constructed from
+	 * 
+	 * @throws NullPointerException if the stream or one of its elements is null
+	 */
+	@SuppressWarnings("unchecked")
+	public BST (Stream<? extends E> stream) throws NullPointerException {
+		bulkLoad((E[]) stream.toArray(Comparable[]::new), false);
+	}
 
+	/**
+	 * Replaces the content of this tree by the elements of the array.
+	 * The array is sorted (unless it already is), duplicates are squeezed out,
+	 * and the balanced tree is built with the two halves of every range
+	 * constructed in parallel on the common fork join pool.
+	 * 
+	 * @param arr the elements, this array is modified
+	 * @param sorted true if the array is already in ascending order
+	 * 
+	 * @throws NullPointerException if one of the elements is null
+	 * @throws IllegalArgumentException if sorted is true but the array is not in ascending order
+	 */
+	protected void bulkLoad(E[] arr, boolean sorted) throws NullPointerException, IllegalArgumentException {
+		if (!sorted) {
+			Arrays.parallelSort(arr, comparator);
+		}
+		int len = 0; //number of distinct elements moved to the front of arr
+		for (int i = 0; i < arr.length; i++) {
+			if (arr[i] == null) {
+				throw new NullPointerException("Null values cannot be added to the tree.");
+			}
+			if (len > 0) {
+				int cmp = compare(arr[i], arr[len-1]);
+				if (cmp < 0) {
+					throw new IllegalArgumentException("The elements are not in ascending order at index " + i + ".");
+				}
+				if (cmp == 0) {
+					continue; // duplicate of the previous element
+				}
+			}
+			arr[len++] = arr[i];
+		}
+		this.root = new BuildTask(arr, 0, len-1).invoke();
 	}
 
 	/**
@@ -81,6 +197,9 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 		BSTNode root = new BSTNode(arr[mid]);
 		root.left = sortedArrToBST(arr, start, mid-1);
 		root.right = sortedArrToBST(arr, mid+1, end);
+		root.updateHeight();
+		root.updateSize();
+		root.updateHash();
 		return root;
 	}
 
@@ -88,7 +207,8 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 
 
 	/**
-	 * Helper method that calls the recursive size method
+	 * Returns the number of elements in this tree. 
+	 * The count is kept in the root node, so this operation is O(1).
 	 * 
 	 * @return the size of the tree
 	 */
@@ -97,17 +217,17 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 	}
 
 	/**
-	 * recursive method to calculate the size of the tree
+	 * Returns the number of nodes in the subtree with the given root.
 	 * 
-	 * @param root
+	 * @param root the root of the subtree, may be null
 	 * 
-	 * @return
+	 * @return the size of the subtree, 0 if it is empty
 	 */
-	private int size(BSTNode root) {
+	protected int size(BSTNode root) {
 		if (root == null)
 			return 0;
 		else
-			return (size(root.left) + 1 + size(root.right));
+			return root.size;
 	}
 
 	/**
@@ -122,40 +242,21 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 
 	}
 	/**
-	 * Helper method that calls the recursive height method
+	 * Returns the height of this tree. The height of a leaf is 1.
+	 * Every node keeps its own height up to date, so this operation is O(1).
 	 * 
 	 * @return the height of the tree, 0 if the tree is empty
 	 */
 	public int height() {
-		return height(this.root);
-	}
-	/**
-	 * Returns the height of this tree. The height of a leaf is 1. 
-	 * The height of the tree is the height of its root node. 
-	 * @param root
-	 * @return
-	 */
-	private int height(BSTNode root)
-	{
-		if (root == null)
-			return 0;
-		else {
-			/* compute the depth of each subtree */
-			int lHeight = height(root.left);
-			int rHeight = height(root.right);
-
-			/* use the larger one */
-			if (lHeight > rHeight)
-				return (lHeight + 1);
-			else
-				return (rHeight + 1);
-		}
+		return root == null ? 0 : root.height + 1;
 	}
 
 	/**
 	 * Adds the specified element to this tree if it is not already present. 
 	 * If this tree already contains the element, the call leaves the 
 	 * tree unchanged and returns false.
+	 * The position is found by a loop that compares the element once per node,
+	 * so a tree that degenerated into a list cannot overflow the stack.
 	 * 
 	 * @param data element to be added to this tree
 
@@ -173,85 +274,366 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 			root = new BSTNode(data); 
 			return true; 
 		}
-		added = add(data, root) ;
-		return added;
+		NodeStack path = new NodeStack(root);
+		long prefix = prefixOf(data);
+		BSTNode current = root;
+		int cmp;
+		do {
+			cmp = compare(data, prefix, current);
+			if (cmp == 0) {
+				return false; // already in the tree, nothing was changed
+			}
+			path.push(current);
+			current = cmp < 0 ? current.left : current.right;
+		} while (current != null);
+
+		BSTNode child = new BSTNode(data);
+		BSTNode parent = path.pop();
+		BSTNode node = editable(parent);
+		if (cmp < 0)
+			node.left = child;
+		else
+			node.right = child;
+		node.size++;
+		node.hash += child.hash;
+		node.updateHeight();
+		relink(path, parent, node, 1, child.hash);
+		return true;
+	}
+
+	/**
+	 * Walks back up the path of an add or a remove. Every node on the path gets
+	 * the given change of its size and content hash and a new height, and is linked
+	 * to the node below it, which may be a copy of the node that was there before.
+	 * 
+	 * @param path the ancestors of child, the root at the bottom of the stack
+	 * @param original the node that was below the top of the path before the change
+	 * @param child the node that replaces it, may be the same node, a copy or null
+	 * @param delta the change of the number of elements below every node of the path
+	 * @param hashDelta the change of the content hash of every node of the path
+	 */
+	private void relink(NodeStack path, BSTNode original, BSTNode child, int delta, long hashDelta) {
+		while (!path.isEmpty()) {
+			BSTNode parent = path.pop();
+			BSTNode node = editable(parent);
+			if (parent.left == original)
+				node.left = child;
+			else
+				node.right = child;
+			node.size += delta;
+			node.hash += hashDelta;
+			node.updateHeight();
+			original = parent;
+			child = node;
+		}
+		root = child;
+	}
+
+	/**
+	 * Compares two elements in the order of this tree: with the comparator
+	 * given to the constructor, or with their natural ordering if there is none.
+	 * Every method that orders elements goes through this one. It is small
+	 * enough to be inlined, and the comparator field does not change, so a tree
+	 * with the natural ordering only pays for a null check.
+	 * 
+	 * @param a the first element
+	 * @param b the second element
+	 * 
+	 * @return a negative integer, zero, or a positive integer as a is less than, equal to, or greater than b
+	 */
+	protected final int compare(E a, E b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+
+	/**
+	 * Compares an element with the element of a node. If the tree keeps key
+	 * prefixes and they differ, the element of the node is not read.
+	 * 
+	 * @param e the element, usually the one a descent is looking for
+	 * @param prefix the prefix of e, see prefixOf
+	 * @param node the node to compare with
+	 * 
+	 * @return a negative integer, zero, or a positive integer as e is less than, equal to, or greater than the element of the node
+	 */
+	protected final int compare(E e, long prefix, BSTNode node) {
+		if (keyPrefix != null && prefix != node.prefix)
+			return Long.compareUnsigned(prefix, node.prefix);
+		return compare(e, node.data);
+	}
+
+	/**
+	 * Returns the prefix of an element, or 0 if this tree does not keep prefixes.
+	 * 
+	 * @param e the element, not null
+	 * 
+	 * @return the prefix of e
+	 */
+	protected final long prefixOf(E e) {
+		return keyPrefix == null ? 0 : keyPrefix.prefix(e);
+	}
+
+	/**
+	 * Returns the comparator used to order the elements in this tree,
+	 * or null if the tree uses the natural ordering of its elements.
+	 * 
+	 * @return the comparator, or null
+	 */
+	public Comparator<E> comparator() {
+		return comparator;
+	}
+
+	/**
+	 * Returns the given node if this tree may change it in place, or a copy
+	 * of it owned by this tree if the node is shared with a snapshot.
+	 * Every method that changes a node has to get it through this method first.
+	 * 
+	 * @param node the node about to be changed, may be null
+	 * 
+	 * @return a node with the same content that this tree owns
+	 */
+	protected BSTNode editable(BSTNode node) {
+		if (node == null || node.owner == this.owner)
+			return node;
+		return new BSTNode(node);
+	}
+
+	/**
+	 * Returns an immutable view of the current content of this tree in O(1).
+	 * The snapshot shares all the nodes with this tree. Afterwards this tree
+	 * copies a shared node before it changes it, so an add or remove copies
+	 * only the nodes on its path and the snapshot never changes.
+	 * 
+	 * @return a persistent tree with the elements this tree has now
+	 */
+	public PersistentBST<E> snapshot() {
+		PersistentBST<E> snapshot = new PersistentBST<>(this.root, this.comparator, this.keyPrefix);
+		//from now on, none of the current nodes belongs to this tree
+		this.owner = new Object();
+		return snapshot;
+	}
+
+	/**
+	 * Returns an immutable copy of the current content of this tree packed in
+	 * one array in Eytzinger order. The copy takes O(N) and answers contains,
+	 * floor, ceiling, higher, lower and rank without following any pointer,
+	 * which is faster than this tree for large indexes that no longer change.
+	 * The frozen tree keeps the prefixes of the elements if this tree does.
+	 *
+	 * @return a frozen tree with the elements this tree has now
+	 */
+	public FrozenBST<E> freeze() {
+		return new FrozenBST<>(toSortedArray(), size(), comparator, keyPrefix);
 	}
 
-	private boolean add(E data, BSTNode node ) {
+	/**
+	 * Returns a new tree with the elements that are in this tree, in the other tree or in both.
+	 * Both trees are read in order into arrays and merged, in parallel for large trees,
+	 * then the result is built balanced from the merged array.
+	 * Neither tree is changed. The result is a tree of the same class and with
+	 * the same ordering as this one; if the other tree is ordered differently,
+	 * its elements are sorted again first.
+	 * 
+	 * @param other the tree to be merged with this one
+	 * 
+	 * @return a new tree with the union of the two trees
+	 * 
+	 * @throws NullPointerException if the other tree is null
+	 */
+	public BST<E> union(BST<E> other) throws NullPointerException {
+		return setOperation(other, true, true, true);
+	}
 
-		if ( node.data.equals(data) ) {
-			return false; 
+	/**
+	 * Returns a new tree with the elements that are in both this tree and the other tree.
+	 * If one of the trees is much smaller than the other, its elements are looked up
+	 * in the larger tree; otherwise the two trees are merged like in union.
+	 * Neither tree is changed. The result is a tree of the same class as this one.
+	 * 
+	 * @param other the tree to be intersected with this one
+	 * 
+	 * @return a new tree with the intersection of the two trees
+	 * 
+	 * @throws NullPointerException if the other tree is null
+	 */
+	public BST<E> intersection(BST<E> other) throws NullPointerException {
+		if (other == null) {
+			throw new NullPointerException("Cannot intersect with a null tree.");
 		}
-		if (data.compareTo(node.data ) < 0 ) {
-			if (node.left == null ) {
-				node.left = new BSTNode(data); 
-				return true; 
-			}
-			return add( data, node.left) ;
+		if (sameOrder(other) && fewLookups(Math.min(size(), other.size()), Math.max(size(), other.size()))) {
+			BST<E> small = size() <= other.size() ? this : other;
+			BST<E> large = small == this ? other : this;
+			return lookUp(small, large, true);
 		}
-		else {
-			if (node.right == null ) {
-				node.right = new BSTNode(data); 
-				return true; 
-			}
-			return add(data, node.right) ; 
+		return setOperation(other, false, false, true);
+	}
+
+	/**
+	 * Returns a new tree with the elements of this tree that are not in the other tree.
+	 * If this tree is much smaller than the other one, its elements are looked up
+	 * in the other tree; otherwise the two trees are merged like in union.
+	 * Neither tree is changed. The result is a tree of the same class as this one.
+	 * 
+	 * @param other the tree whose elements are left out
+	 * 
+	 * @return a new tree with the difference of the two trees
+	 * 
+	 * @throws NullPointerException if the other tree is null
+	 */
+	public BST<E> difference(BST<E> other) throws NullPointerException {
+		if (other == null) {
+			throw new NullPointerException("Cannot subtract a null tree.");
+		}
+		if (sameOrder(other) && fewLookups(size(), other.size())) {
+			return lookUp(this, other, false);
 		}
+		return setOperation(other, true, false, false);
 	}
 
 	/**
-	 * Helper method that calls the recursive ceiling method
-	 * @param e the value to match
+	 * Returns true if the other tree orders its elements like this one.
+	 */
+	private boolean sameOrder(BST<E> other) {
+		return Objects.equals(comparator, other.comparator);
+	}
+
+	/**
+	 * Returns true if looking up the elements of the small tree in the large
+	 * one, about small*log2(large) comparisons, is cheaper than reading and
+	 * merging both trees.
+	 */
+	private static boolean fewLookups(int small, int large) {
+		int log = 32 - Integer.numberOfLeadingZeros(large);
+		return (long) small * log < large;
+	}
+
+	/**
+	 * Builds the tree of the elements of source that are (or are not) in lookup.
+	 * The elements come out of source in order, so the result is built from a sorted array.
 	 * 
-	 * @return the least element greater than or equal to e, or null if there is no such element
+	 * @param source tree whose elements are checked
+	 * @param lookup tree in which they are looked up
+	 * @param keepFound true to keep the elements found in lookup, false to keep the others
 	 * 
-	 * @throws ClassCastException
-	 * @throws NullPointerException
+	 * @return the new tree
 	 */
-	public E ceiling​(E e) throws ClassCastException, NullPointerException {
-		if (e == null) {
-			throw new NullPointerException("Cannot find the ceiling for null value.");
+	private BST<E> lookUp(BST<E> source, BST<E> lookup, boolean keepFound) {
+		E[] out = source.toSortedArray();
+		int count = 0;
+		for (E e : out) {
+			if (lookup.contains(e) == keepFound) {
+				out[count++] = e;
+			}
 		}
-		return ceiling(this.root, e);
+		return buildFrom(out, count);
 	}
+
 	/**
-	 * Recursive method that returns the smallest element in the tree 
-	 * that is greater than or equal to the given element.
-	 * Returns null if there is no such element.
+	 * Merges the elements of this tree and the other tree and builds a new tree
+	 * from the merged array. Which elements are kept depends on where they are:
+	 * only in this tree, only in the other one, or in both.
 	 * 
-	 * @param root the root of this tree
+	 * @param other the second tree
+	 * @param keepOnlyThis keep the elements that are only in this tree
+	 * @param keepOnlyOther keep the elements that are only in the other tree
+	 * @param keepBoth keep the elements that are in both trees
 	 * 
-	 * @param e the value to the match
+	 * @return the new tree
 	 * 
-	 * @return
+	 * @throws NullPointerException if the other tree is null
 	 */
-	private E ceiling(BSTNode root, E e) {
+	private BST<E> setOperation(BST<E> other, boolean keepOnlyThis, boolean keepOnlyOther, boolean keepBoth)
+			throws NullPointerException {
+		if (other == null) {
+			throw new NullPointerException("Cannot combine with a null tree.");
+		}
+		E[] a = this.toSortedArray();
+		E[] b = other.toSortedArray();
+		if (!sameOrder(other)) {
+			// bring the other elements into the order of this tree
+			Arrays.parallelSort(b, comparator);
+			int len = 0;
+			for (int i = 0; i < b.length; i++) {
+				if (len == 0 || compare(b[i], b[len-1]) != 0) {
+					b[len++] = b[i];
+				}
+			}
+			b = Arrays.copyOf(b, len);
+		}
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		E[] out = (E[]) new Comparable[a.length + b.length];
+		int count = new SetOperationTask(a, 0, a.length, b, 0, b.length, out, 0,
+				keepOnlyThis, keepOnlyOther, keepBoth).invoke();
+		return buildFrom(out, count);
+	}
 
-		// Base cases
-		if (root == null)
-			return null;
-		if (root.data.equals(e))
-			return e;
+	/**
+	 * Returns the elements of this tree in ascending order in a new array.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private E[] toSortedArray() {
+		E[] arr = (E[]) new Comparable[size()];
+		int[] i = new int[1];
+		forEach(e -> arr[i[0]++] = e);
+		return arr;
+	}
 
-		// If root's value is greater, try in left
-		// subtree
-		else if (root.data.compareTo(e) > 0) {
-			E k = ceiling(root.left, e);
-			if (k == null)
-				return root.data;
-			else
-				return k;
-		}
+	/**
+	 * Creates a tree of the same class as this one from the first count
+	 * elements of a sorted array without duplicates.
+	 */
+	private BST<E> buildFrom(E[] arr, int count) {
+		BST<E> result = newTree();
+		result.root = result.new BuildTask(arr, 0, count-1).invoke();
+		return result;
+	}
+
+	/**
+	 * Returns a new, empty tree of the same class and with the same ordering
+	 * as this one. Used by the methods that build a new tree from this one.
+	 * 
+	 * @return the empty tree
+	 */
+	protected BST<E> newTree() {
+		return new BST<>(this.comparator, this.keyPrefix);
+	}
 
-		// If root's value is smaller, return value
-		// from right subtree.
-		else if (root.data.compareTo(e) < 0)
-			return ceiling(root.right, e);
-		return null;
+	/**
+	 * Returns the least element in this tree greater than or equal to the given element,
+	 * or null if there is no such element.
+	 * Each node on the path is compared once.
+	 * @param e the value to match
+	 * 
+	 * @return the least element greater than or equal to e, or null if there is no such element
+	 * 
+	 * @throws ClassCastException if the specified element cannot be compared with the elements currently in the set
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E ceiling(E e) throws ClassCastException, NullPointerException {
+		if(e == null) {
+			throw new NullPointerException("Cannot find the ceiling for null value.");
+		}
+		E candidate = null; //least element greater than e seen so far
+		long prefix = prefixOf(e);
+		BSTNode current = this.root;
+		while (current != null) {
+			int cmp = compare(e, prefix, current);
+			if (cmp == 0)
+				return current.data;
+			if (cmp < 0) {
+				candidate = current.data;
+				current = current.left;
+			}
+			else {
+				current = current.right;
+			}
+		}
+		return candidate;
 	}
 
 	/**
 	 * Returns the greatest element in this set less than or 
 	 * equal to the given element, or null if there is no such element. 
+	 * Each node on the path is compared once.
 	 * 
 	 * @param e value to match
 	 * @return the greatest element that is less than or equal to the given element
@@ -262,43 +644,22 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 		if(e == null) {
 			throw new NullPointerException("Cannot find the floor for null value.");
 		}
-		return floor(this.root, e);
-
-	}
-	/**
-	 * Recursive method returns the greatest element in this set that is
-	 * less than or equal to the given element, or null if there is no such element. 
-	 * @param root
-	 * 
-	 * @param e
-	 * 
-	 * @return 
-	 * Returns the greatest element in this set less than or equal to the given element, 
-	 * or null if there is no such element. 
-	 */
-	private E floor(BSTNode root, E e)
-	{
-		// Base cases
-		if (root == null)
-			return null;
-		if (root.data.equals(e))
-			return e;
-
-		// If root's value is smaller, try in right
-		// subtree
-		else if (root.data.compareTo(e) < 0) {
-			E k = floor(root.right, e);
-			if (k == null)
-				return root.data;
-			else
-				return k;
+		E candidate = null; //greatest element less than e seen so far
+		long prefix = prefixOf(e);
+		BSTNode current = this.root;
+		while (current != null) {
+			int cmp = compare(e, prefix, current);
+			if (cmp == 0)
+				return current.data;
+			if (cmp > 0) {
+				candidate = current.data;
+				current = current.right;
+			}
+			else {
+				current = current.left;
+			}
 		}
-
-		// If root's key is greater, return value
-		// from left subtree.
-		else if (root.data.compareTo(e) > 0)
-			return floor(root.left, e);
-		return null;
+		return candidate;
 	}
 
 	/**
@@ -325,7 +686,7 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 	/**
 	 * Returns true if this set contains the specified element. 
 	 * More formally, returns true if and only if this set contains an element 
-	 * e such that Objects.equals(o, e). 
+	 * e such that e.compareTo(o) == 0. Each node on the path is compared once.
 	 * @param o object to be checked in the tree
 	 * 
 	 * @return true if the object contains the tree
@@ -333,277 +694,462 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 	 * @throws NullPointerException if the specified element is null and this set uses natural ordering, or its comparator does not permit null elements
 	 * @throws ClassCastException if the specified object cannot be compared with the elements currently in the set
 	 */
+	@SuppressWarnings("unchecked")
 	public boolean contains(Object o) throws NullPointerException, ClassCastException {
 		if(o == null) {
 			throw new NullPointerException("The tree does not contain null elements.");
 		}
-		return contains(this.root, o);
-
-	}
-	// recursive method that returns true if the tree contains Object o
-	private boolean contains(BSTNode root, Object o) {
-
-		if(root.data.equals(o)) {
-			return true;
-		}
-		try {
-			@SuppressWarnings("unchecked")
-			E obj = (E) o;
-			if (( root.data.compareTo(obj) > 0 && root.left == null) ||
-					(root.data.compareTo(obj)< 0 && root.right == null)){
-				return false;
-			}
-			if (root.data.compareTo(obj) > 0  && root.left != null ){
-				return contains(root.left, o);
-			}
-			else if (root.data.compareTo(obj) < 0  && root.right != null ) {
-				return contains(root.right, o);
-			}
-			else
-				return false;
-		}
-		catch(ClassCastException ex) {
-			System.err.println("ClassCastException thrown");
+		E e = (E) o;
+		long prefix = prefixOf(e);
+		BSTNode current = this.root;
+		while (current != null) {
+			int cmp = compare(e, prefix, current);
+			if (cmp == 0)
+				return true;
+			current = cmp < 0 ? current.left : current.right;
 		}
 		return false;
 	}
+
 	/**
 	 * Compares the specified object with this tree for equality.
 	 * Returns true if the given object is also a tree, the two trees have the same size,
-	 * and every member of the given tree is contained in this tree. 
-	 *This operation should be O(N).
-	 *@param object to be compared for equality with this tree
+	 * and every member of the given tree is contained in this tree. The shape of the
+	 * trees does not matter.
+	 * Every node keeps a hash of the elements in its subtree, so trees with a different
+	 * content are almost always told apart in O(1); only trees whose sizes and hashes
+	 * match are compared element by element, in O(N).
+	 *@param obj object to be compared for equality with this tree
 	 *@return true if the object is equal to the tree
 	 */
-
 	@SuppressWarnings("unchecked")
 	@Override
 	public boolean equals(Object obj) {
 		if(obj == this) {
 			return true;
 		}
-		if ((obj instanceof BST)){
-			try {
-				BST<E> o = (BST<E>) obj;
-				return isIdentical(this.root, o.root) ;
-			}catch(ClassCastException ex) {
-				System.err.println("ClassCastException thrown.");
+		if (!(obj instanceof BST)) {
+			return false;
+		}
+		BST<E> other = (BST<E>) obj;
+		if (size() != other.size() || hash(root) != hash(other.root)) {
+			return false;
+		}
+		if (sameOrder(other)) {
+			// both trees list their elements in the same order
+			Iterator<E> it = other.iterator();
+			for (E e : this) {
+				if (!e.equals(it.next()))
+					return false;
 			}
+			return true;
 		}
-		return false;
-
-	}
-	//Recursive method that checks if two trees are identical
-	private boolean isIdentical(BSTNode root1,  BSTNode root2){
-		// Check if both the trees are empty
-		if (root1 == null && root2 == null)
+		try {
+			for (E e : other) {
+				if (!contains(e))
+					return false;
+			}
 			return true;
-
-		// If any one of the tree is non-empty
-		// and other is empty, return false
-		else if (root1 != null &&
-				root2 == null)
-			return false;
-		else if (root1 == null &&
-				root2 != null)
+		}
+		catch (ClassCastException ex) {
 			return false;
-		else{
-			// Check if current data of both trees equal
-			// and recursively check for left and right subtrees
-			if (root1.data == root2.data &&
-					isIdentical(root1.left, root2.left) == true &&
-					isIdentical(root1.right, root2.right) == true)
-				return true;
-			else
-				return false;
 		}
 	}
+
 	/**
-	 * Returns the first (lowest) element currently in this tree.
-	 * @return the first element through inorder traversal
-	 * @throws NoSuchElementException if the set is empty
+	 * Returns the hash code of this tree. It depends only on the elements, not on
+	 * the shape of the tree, and is kept up to date by add and remove, so this
+	 * operation is O(1).
+	 * @return the hash code of this tree
 	 */
-	public E first() throws NoSuchElementException {
-		if(this.root == null) {
-			throw new NoSuchElementException("The tree is empty, no first element available.");
-		}
-
-		BSTNode current = this.root;
-
-		// loop down to find the leftmost leaf 
-		while (current.left != null) {
-			current = current.left;
-		}
-		return (current.data);	
+	@Override
+	public int hashCode() {
+		long hash = hash(root);
+		return (int) (hash ^ (hash >>> 32));
 	}
 
 	/**
-	 * Returns the last (highest) element currently in this tree.
-	 * @return the last element through in order traversal
-	 * @throws NoSuchElementException if the tree set is empty
+	 * Reports the differences between this tree and the other tree: every element
+	 * that is only in this tree and every element that is only in the other one,
+	 * each in ascending order.
+	 * Subtrees of this tree whose hash matches the hash of the same range in the
+	 * other tree are skipped, so the cost grows with the number of differences
+	 * times O(H logN) instead of with the size of the trees.
+	 * 
+	 * @param other the tree to be compared with this one
+	 * @param onlyInThis receives the elements that are missing from the other tree
+	 * @param onlyInOther receives the elements that are missing from this tree
+	 * 
+	 * @throws NullPointerException if one of the arguments is null
+	 * @throws IllegalArgumentException if the trees are ordered differently
 	 */
-	public E last() throws NoSuchElementException {
-		if(this.root == null) {
-			throw new NoSuchElementException("The tree is emptry, no last value available.");
+	public void diff(BST<E> other, Consumer<? super E> onlyInThis, Consumer<? super E> onlyInOther)
+			throws NullPointerException, IllegalArgumentException {
+		if (other == null || onlyInThis == null || onlyInOther == null) {
+			throw new NullPointerException("The tree and the actions cannot be null.");
 		}
-		BSTNode current = this.root;
-		//loop down to find the right most element
-		while(current.right != null) {
-			current = current.right;
+		if (!sameOrder(other)) {
+			throw new IllegalArgumentException("Cannot diff trees that are ordered differently.");
 		}
-		return current.data;
+		diff(this.root, null, null, other, onlyInThis, onlyInOther);
 	}
 
 	/**
-	 * Returns the element at the specified position in this tree. 
-	 * The order of the indexed elements is the same as provided by this tree's iterator. 
-	 * The indexing is zero based 
-	 * (i.e., the smallest element in this tree is at index 0 and the largest one is at index size()-1). 
-	 * @param index
-	 * @return
-	 * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
+	 * Recursive diff method. The subtree holds the elements of this tree that lie
+	 * between lo and hi, and they are compared with the elements of the other tree
+	 * in the same range.
+	 * 
+	 * @param node root of the subtree of this tree
+	 * @param lo lower bound of the range (exclusive), null if there is none
+	 * @param hi upper bound of the range (exclusive), null if there is none
 	 */
-	public E get(int index) throws IndexOutOfBoundsException {
-		if(index>=this.size()) {
-			throw new IndexOutOfBoundsException("The index cannot be larger than or equal to the size.");
+	private void diff(BSTNode node, E lo, E hi, BST<E> other,
+			Consumer<? super E> onlyInThis, Consumer<? super E> onlyInOther) {
+		int otherSize = (hi == null ? other.size() : other.countBelow(hi, false))
+				- (lo == null ? 0 : other.countBelow(lo, true));
+		if (node == null) {
+			if (otherSize > 0) {
+				Cursor cursor = lo == null ? other.cursor() : other.cursor(lo, false);
+				for (int i = 0; i < otherSize; i++) {
+					onlyInOther.accept(cursor.next());
+				}
+			}
+			return;
+		}
+		if (node.size == otherSize && node.hash == other.hashBelow(hi, false) - other.hashBelow(lo, true)) {
+			return; // same content
 		}
-		E res = get(this.root, index+1).data;
-		return res;
+		diff(node.left, lo, node.data, other, onlyInThis, onlyInOther);
+		if (!other.contains(node.data)) {
+			onlyInThis.accept(node.data);
+		}
+		diff(node.right, node.data, hi, other, onlyInThis, onlyInOther);
 	}
+
 	/**
-	 * recursive method to get the k'th or index+1 th smallest element in the BST
+	 * Returns the sum of the mixed hash codes of the elements less than e
+	 * (or equal to e if inclusive). A null e stands for the end of the range
+	 * of hi and the start of the range of lo, like in diff.
+	 * @param e the value to match, may be null
+	 * @param inclusive true to also count an element equal to e
+	 * @return the content hash of the elements below e
 	 */
-	int count = 0;
-	private BSTNode get(BSTNode root, int k)
-	{
-		// base case
-		if (root == null)
-			return null;
+	private long hashBelow(E e, boolean inclusive) {
+		if (e == null) {
+			return inclusive ? 0 : hash(root);
+		}
+		long hash = 0;
+		long prefix = prefixOf(e);
+		BSTNode current = this.root;
+		while (current != null) {
+			int cmp = compare(e, prefix, current);
+			if (cmp < 0 || (cmp == 0 && !inclusive)) {
+				current = current.left;
+			}
+			else {
+				hash += hash(current.left) + mix(current.data);
+				current = current.right;
+			}
+		}
+		return hash;
+	}
 
-		// search in left subtree
-		BSTNode left = get(root.left, k);
+	/**
+	 * @return the content hash of the subtree, 0 for an empty subtree
+	 */
+	private long hash(BSTNode node) {
+		return node == null ? 0 : node.hash;
+	}
 
-		// if k'th smallest is found in left subtree, return it
-		if (left != null)
-			return left;
+	/**
+	 * Spreads the hash code of an element over 64 bits (the finalizer of MurmurHash3),
+	 * so that the sums kept in the nodes rarely collide.
+	 * @param e the element
+	 * @return the mixed hash code
+	 */
+	private static long mix(Object e) {
+		long h = e.hashCode();
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
 
-		// if current element is k'th smallest, return it
-		count++;
-		if (count == k)
-			return root;
+	/**
+	 * Returns the first (lowest) element currently in this tree.
+	 * @return the first element through inorder traversal
+	 * @throws NoSuchElementException if the set is empty
+	 */
+	public E first() throws NoSuchElementException {
+		if(this.root == null) {
+			throw new NoSuchElementException("The tree is empty, no first element available.");
+		}
+
+		BSTNode current = this.root;
 
-		// else search in right subtree
-		return get(root.right, k);
+		// loop down to find the leftmost leaf 
+		while (current.left != null) {
+			current = current.left;
+		}
+		return (current.data);	
 	}
 
 	/**
-	 * Helper method that calls the recursive higher method.
-	 * @param e the value to match
-	 * @return the least element greater than e, or null if there is no such element
-	 * @throws ClassCastException
-	 * @throws NullPointerException
+	 * Returns the last (highest) element currently in this tree.
+	 * @return the last element through in order traversal
+	 * @throws NoSuchElementException if the tree set is empty
 	 */
-	public E higher(E e) throws ClassCastException, NullPointerException{
-		if(e == null)
-			throw new NullPointerException("Cannot find the least higher element for null value.");
-		return higher(this.root, e);
+	public E last() throws NoSuchElementException {
+		if(this.root == null) {
+			throw new NoSuchElementException("The tree is emptry, no last value available.");
+		}
+		BSTNode current = this.root;
+		//loop down to find the right most element
+		while(current.right != null) {
+			current = current.right;
+		}
+		return current.data;
 	}
-	//
+
 	/**
-	 * Recursive method to find the closest element higher compared to e
-	 * Returns the least element in this tree strictly greater than the given element,
-	 * or null if there is no such element.
-	 * @param root
-	 * @param e e the value to match
-	 * @return
+	 * Returns the element at the specified position in this tree. 
+	 * The order of the indexed elements is the same as provided by this tree's iterator. 
+	 * The indexing is zero based 
+	 * (i.e., the smallest element in this tree is at index 0 and the largest one is at index size()-1). 
+	 * This operation is O(H) where H is the height of the tree.
+	 * @param index
+	 * @return the element at the specified position
+	 * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
 	 */
-	private E higher(BSTNode root, E e) {
-
-		// Base cases
-		if (root == null)
-			return null;
-		if (root.left == null &&root.right == null && root.data.compareTo(e) < 0)
-			return null;
+	public E get(int index) throws IndexOutOfBoundsException {
+		return select(index);
+	}
 
-		else if (root.data.compareTo(e) == 0) {
-			E k = higher(root.right, e);
-			if (k == null)
-				return null;
-			else
-				return k;
-		}
-		// If root's value is greater, try in left
-		// subtree
-		else if (root.data.compareTo(e) > 0) {
-			E k = higher(root.left, e);
-			if (k == null)
-				return root.data;
+	/**
+	 * Returns the element of the given rank, that is the element that has 
+	 * exactly index smaller elements in this tree. 
+	 * Uses the subtree sizes stored in the nodes, so only one path from 
+	 * the root is visited.
+	 * @param index zero based rank of the element
+	 * @return the element with the given rank
+	 * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
+	 */
+	public E select(int index) throws IndexOutOfBoundsException {
+		if(index < 0 || index >= this.size()) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of range for size " + this.size() + ".");
+		}
+		BSTNode current = this.root;
+		while (true) {
+			int leftSize = size(current.left);
+			if (index < leftSize) {
+				current = current.left;
+			}
+			else if (index > leftSize) {
+				//skip the left subtree and the current node
+				index -= leftSize + 1;
+				current = current.right;
+			}
 			else
-				return k;
+				return current.data;
 		}
+	}
 
-		// If root's value is smaller, return value
-		// from right subtree.
-		else if (root.data.compareTo(e) < 0)
-			return higher(root.right, e);
-		else
-			return null;
+	/**
+	 * Returns the number of elements in this tree that are strictly less than e. 
+	 * If e is in the tree, this is its index as used by get(int).
+	 * @param e the value to match
+	 * @return the number of elements less than e
+	 * @throws ClassCastException if the specified element cannot be compared with the elements currently in the tree
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public int rank(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the rank of null value.");
+		}
+		int rank = 0;
+		long prefix = prefixOf(e);
+		BSTNode current = this.root;
+		while (current != null) {
+			int cmp = compare(e, prefix, current);
+			if (cmp <= 0) {
+				current = current.left;
+			}
+			else {
+				//everything in the left subtree and the current node is smaller
+				rank += size(current.left) + 1;
+				current = current.right;
+			}
+		}
+		return rank;
 	}
 
+	/**
+	 * Counts the elements that are less than e, or less than or equal to e if inclusive.
+	 * @param e the value to match
+	 * @param inclusive true to also count an element equal to e
+	 * @return the number of such elements
+	 */
+	private int countBelow(E e, boolean inclusive) {
+		int count = 0;
+		long prefix = prefixOf(e);
+		BSTNode current = this.root;
+		while (current != null) {
+			int cmp = compare(e, prefix, current);
+			if (cmp < 0 || (cmp == 0 && !inclusive)) {
+				current = current.left;
+			}
+			else {
+				count += size(current.left) + 1;
+				current = current.right;
+			}
+		}
+		return count;
+	}
 
+	/**
+	 * Returns the number of elements e in this tree with from &lt;= e &lt; to.
+	 * Uses the subtree sizes, so this operation is O(H) and visits no element of the range.
+	 * @param from the lowest element of the range (inclusive)
+	 * @param to the end of the range (exclusive)
+	 * @return the number of elements in the range
+	 * @throws NullPointerException if one of the bounds is null
+	 * @throws IllegalArgumentException if from is greater than to
+	 */
+	public int countInRange(E from, E to) throws NullPointerException, IllegalArgumentException {
+		return countInRange(from, true, to, false);
+	}
 
+	/**
+	 * Returns the number of elements in this tree between from and to.
+	 * Uses the subtree sizes, so this operation is O(H) and visits no element of the range.
+	 * @param from the lowest element of the range
+	 * @param fromInclusive true if from itself belongs to the range
+	 * @param to the highest element of the range
+	 * @param toInclusive true if to itself belongs to the range
+	 * @return the number of elements in the range
+	 * @throws NullPointerException if one of the bounds is null
+	 * @throws IllegalArgumentException if from is greater than to
+	 */
+	public int countInRange(E from, boolean fromInclusive, E to, boolean toInclusive)
+			throws NullPointerException, IllegalArgumentException {
+		if (from == null || to == null) {
+			throw new NullPointerException("Range bounds cannot be null.");
+		}
+		if (compare(from, to) > 0) {
+			throw new IllegalArgumentException("The start of the range is greater than its end.");
+		}
+		int count = countBelow(to, toInclusive) - countBelow(from, !fromInclusive);
+		return Math.max(count, 0); // an empty range like (e, e)
+	}
 
 	/**
-	 * Helper method that calls the recursive lower method
-	 * @param e
-	 * @return
-	 * @throws ClassCastException
-	 * @throws NullPointerException
+	 * Returns a view of the elements of this tree between from and to.
+	 * The view is backed by this tree: changes of the tree are visible in the view
+	 * and elements added through the view are added to the tree.
+	 * Its size is computed in O(H) from the subtree sizes and its iterator
+	 * only visits the elements in the range.
+	 * @param from the lowest element of the view
+	 * @param fromInclusive true if from itself belongs to the view
+	 * @param to the highest element of the view
+	 * @param toInclusive true if to itself belongs to the view
+	 * @return a view of the range
+	 * @throws NullPointerException if one of the bounds is null
+	 * @throws IllegalArgumentException if from is greater than to
 	 */
-	public E lower(E e) throws ClassCastException, NullPointerException {
-		if(e == null) {
-			throw new NullPointerException("Cannot find the closest lower element for null value.");
+	public SortedSet<E> subSet(E from, boolean fromInclusive, E to, boolean toInclusive)
+			throws NullPointerException, IllegalArgumentException {
+		if (from == null || to == null) {
+			throw new NullPointerException("Range bounds cannot be null.");
 		}
-		return lower(this.root, e);
+		if (compare(from, to) > 0) {
+			throw new IllegalArgumentException("The start of the range is greater than its end.");
+		}
+		return new RangeView(from, fromInclusive, to, toInclusive);
 	}
+
 	/**
-	 * Recursive method that returns the greatest value that is strictly lower than e
-	 * returns null if there is no such element
-	 * @param root
-	 * @param e
-	 * @return
+	 * Returns a view of the elements of this tree that are less than
+	 * (or equal to, if inclusive) to. See subSet.
+	 * @param to the highest element of the view
+	 * @param inclusive true if to itself belongs to the view
+	 * @return a view of the range
+	 * @throws NullPointerException if to is null
 	 */
-	private E lower(BSTNode root, E e) {
+	public SortedSet<E> headSet(E to, boolean inclusive) throws NullPointerException {
+		if (to == null) {
+			throw new NullPointerException("Range bounds cannot be null.");
+		}
+		return new RangeView(null, false, to, inclusive);
+	}
 
-		// Base cases
-		if (root == null)
-			return null;
-		if (root.left == null &&root.right == null && root.data.compareTo(e) > 0)
-			return null;
+	/**
+	 * Returns a view of the elements of this tree that are greater than
+	 * (or equal to, if inclusive) from. See subSet.
+	 * @param from the lowest element of the view
+	 * @param inclusive true if from itself belongs to the view
+	 * @return a view of the range
+	 * @throws NullPointerException if from is null
+	 */
+	public SortedSet<E> tailSet(E from, boolean inclusive) throws NullPointerException {
+		if (from == null) {
+			throw new NullPointerException("Range bounds cannot be null.");
+		}
+		return new RangeView(from, inclusive, null, false);
+	}
 
-		else if (root.data.compareTo(e) == 0) {
-			E k = lower(root.left, e);
-			if (k == null)
-				return null;
-			else
-				return k;
-		}
-		// If root's value is smaller, try in right
-		// subtree
-		else if (root.data.compareTo(e) < 0) {
-			E k = lower(root.right, e);
-			if (k == null)
-				return root.data;
-			else
-				return k;
+	/**
+	 * Returns the least element in this tree strictly greater than the given element,
+	 * or null if there is no such element. Each node on the path is compared once.
+	 * @param e the value to match
+	 * @return the least element greater than e, or null if there is no such element
+	 * @throws ClassCastException if the specified element cannot be compared with the elements currently in the set
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E higher(E e) throws ClassCastException, NullPointerException{
+		if(e == null)
+			throw new NullPointerException("Cannot find the least higher element for null value.");
+		E candidate = null; //least element greater than e seen so far
+		long prefix = prefixOf(e);
+		BSTNode current = this.root;
+		while (current != null) {
+			if (compare(e, prefix, current) < 0) {
+				candidate = current.data;
+				current = current.left;
+			}
+			else {
+				current = current.right;
+			}
 		}
+		return candidate;
+	}
 
-		// If root's key is greater, return value
-		// from left subtree.
-		else if (root.data.compareTo(e) > 0)
-			return lower(root.left, e);
-		else
-			return null;
+	/**
+	 * Returns the greatest element in this tree strictly less than the given element,
+	 * or null if there is no such element. Each node on the path is compared once.
+	 * @param e the value to match
+	 * @return the greatest element less than e, or null if there is no such element
+	 * @throws ClassCastException if the specified element cannot be compared with the elements currently in the set
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E lower(E e) throws ClassCastException, NullPointerException {
+		if(e == null) {
+			throw new NullPointerException("Cannot find the closest lower element for null value.");
+		}
+		E candidate = null; //greatest element less than e seen so far
+		long prefix = prefixOf(e);
+		BSTNode current = this.root;
+		while (current != null) {
+			if (compare(e, prefix, current) > 0) {
+				candidate = current.data;
+				current = current.right;
+			}
+			else {
+				current = current.left;
+			}
+		}
+		return candidate;
 	}
 
 
@@ -631,278 +1177,1500 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 		return Itr;
 	}
 
+	/**
+	 * @return an iterator over the elements in this tree in descending order
+	 */
+	public Iterator<E> descendingIterator(){
+		Cursor cursor = new Cursor();
+		cursor.seekEnd();
+		return new Iterator<E>() {
+			public boolean hasNext() {
+				return cursor.hasPrevious();
+			}
+
+			public E next() {
+				return cursor.previous();
+			}
+		};
+	}
+
+	/**
+	 * Returns a cursor positioned before the first (lowest) element of this tree.
+	 * @return a cursor that can move forward and backward in order of the inorder traversal
+	 */
+	public Cursor cursor() {
+		Cursor cursor = new Cursor();
+		cursor.seekStart();
+		return cursor;
+	}
+
+	/**
+	 * Returns a cursor positioned before the least element that is greater than
+	 * (or equal to, if inclusive) the given element, found in one descent.
+	 * If there is no such element the cursor is positioned after the last element.
+	 * Calling next() on the cursor then returns ceiling(from) (or higher(from)),
+	 * and each following next() costs amortized O(1).
+	 * @param from the value to seek
+	 * @param inclusive true to start at an element equal to from, if there is one
+	 * @return a cursor positioned at the given element
+	 * @throws NullPointerException if from is null
+	 * @throws ClassCastException if from cannot be compared with the elements currently in the tree
+	 */
+	public Cursor cursor(E from, boolean inclusive) throws NullPointerException, ClassCastException {
+		Cursor cursor = new Cursor();
+		cursor.seek(from, inclusive);
+		return cursor;
+	}
+
+	/**
+	 * Performs the given action for each element of this tree in order of the
+	 * inorder traversal. The traversal uses one array stack for the whole walk
+	 * and creates no iterator.
+	 * @param action the action to be performed for each element
+	 * @throws NullPointerException if the action is null
+	 */
+	@Override
+	public void forEach(Consumer<? super E> action) throws NullPointerException {
+		if (action == null) {
+			throw new NullPointerException("Action cannot be null.");
+		}
+		NodeStack stack = new NodeStack(this.root);
+		BSTNode current = this.root;
+		while (current != null || !stack.isEmpty()) {
+			// go down to the smallest element of the current subtree
+			while (current != null) {
+				stack.push(current);
+				current = current.left;
+			}
+			current = stack.pop();
+			action.accept(current.data);
+			current = current.right;
+		}
+	}
+
+	/**
+	 * Performs the given action for each element e of this tree with
+	 * from &lt;= e &lt; to, in ascending order. Only the nodes on the paths to
+	 * the two bounds and the nodes in the range are visited.
+	 * @param from the lowest element of the range (inclusive)
+	 * @param to the end of the range (exclusive)
+	 * @param action the action to be performed for each element in the range
+	 * @throws NullPointerException if one of the arguments is null
+	 * @throws ClassCastException if the bounds cannot be compared with the elements currently in the tree
+	 */
+	public void forEachInRange(E from, E to, Consumer<? super E> action) throws NullPointerException, ClassCastException {
+		if (from == null || to == null || action == null) {
+			throw new NullPointerException("Range bounds and action cannot be null.");
+		}
+		NodeStack stack = new NodeStack(this.root);
+		long fromPrefix = prefixOf(from);
+		long toPrefix = prefixOf(to);
+		BSTNode current = this.root;
+		while (true) {
+			// push the path to the smallest element that is not below from
+			while (current != null) {
+				if (compare(from, fromPrefix, current) > 0) {
+					current = current.right;
+				}
+				else {
+					stack.push(current);
+					current = current.left;
+				}
+			}
+			if (stack.isEmpty()) {
+				return;
+			}
+			current = stack.pop();
+			if (compare(to, toPrefix, current) <= 0) {
+				return; // every remaining element is past the range
+			}
+			action.accept(current.data);
+			current = current.right;
+		}
+	}
+
+	/**
+	 * Returns a spliterator over the elements in this tree in order of the inorder traversal.
+	 * It splits the tree along its subtrees, so a balanced tree is cut into
+	 * halves of almost equal size, and it knows the exact size of every part.
+	 * @return a spliterator that reports ORDERED, SORTED, DISTINCT, NONNULL, SIZED and SUBSIZED
+	 */
+	@Override
+	public Spliterator<E> spliterator() {
+		return new BSTSpliterator(null, this.root);
+	}
+
+	/**
+	 * @return a sequential stream of the elements in this tree in ascending order
+	 */
+	public Stream<E> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * @return a parallel stream of the elements in this tree, split along its subtrees
+	 */
+	public Stream<E> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
+
 	/**
 	 * Finds and removes Object o from the tree. 
+	 * The node is found by a loop that compares the object once per node; a node with
+	 * two children takes the element of its inorder successor, which is then unlinked.
 	 * @param o
 	 * @return true if there is an element equal to the object, false otherwise
 	 * @throws NullPointerException if the object is null
-	 * @throws ClassCastException
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
 	 */
 	@SuppressWarnings("unchecked")
 	public boolean remove(Object o) throws NullPointerException, ClassCastException {
 		if(o == null) {
 			throw new NullPointerException("Cannot remove a null element from the tree.");
 		}
+		E e = (E) o;
+		NodeStack path = new NodeStack(root);
+		long prefix = prefixOf(e);
+		BSTNode target = this.root;
+		while (target != null) {
+			int cmp = compare(e, prefix, target);
+			if (cmp == 0)
+				break;
+			path.push(target);
+			target = cmp < 0 ? target.left : target.right;
+		}
+		if (target == null) {
+			return false;
+		}
+		long removed = mix(target.data);
+		if (target.left == null || target.right == null) {
+			// the node is replaced by its only child
+			relink(path, target, target.left != null ? target.left : target.right, -1, -removed);
+			return true;
+		}
+		// the node takes the element of its inorder successor, which has no left child
+		int targetDepth = path.size;
+		path.push(target);
+		BSTNode successor = target.right;
+		while (successor.left != null) {
+			path.push(successor);
+			successor = successor.left;
+		}
+		BSTNode original = successor;
+		BSTNode child = successor.right;
+		while (path.size > targetDepth) {
+			BSTNode parent = path.pop();
+			BSTNode node = editable(parent);
+			if (parent.left == original)
+				node.left = child;
+			else
+				node.right = child;
+			if (parent == target) {
+				// the node loses its own element, the successor only moves up to it
+				node.hash -= removed;
+				node.data = successor.data;
+				node.prefix = successor.prefix;
+			}
+			else {
+				node.hash -= mix(successor.data);
+			}
+			node.size--;
+			node.updateHeight();
+			original = parent;
+			child = node;
+		}
+		relink(path, original, child, -1, -removed);
+		return true;
+	}
+
+	/**
+	 * Returns the elements in the tree in inorder traversal enclosed in square brackets [].
+	 * The string is written in one pass by writeTo.
+	 * @return the elements of the tree, like [1, 2, 3]
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			writeTo(sb);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex); // a StringBuilder does not throw
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the elements in the tree in inorder traversal enclosed in square
+	 * brackets [] to the given output, in the format of toString.
+	 * Every element is appended as soon as it is visited, so no part of the
+	 * text is built or copied in memory. A Writer should be buffered.
+	 * @param out where the text is written
+	 * @throws IOException if the output throws it
+	 * @throws NullPointerException if out is null
+	 */
+	public void writeTo(Appendable out) throws IOException, NullPointerException {
+		if (out == null) {
+			throw new NullPointerException("Cannot write to a null output.");
+		}
+		out.append('[');
+		NodeStack stack = new NodeStack(this.root);
+		BSTNode current = this.root;
+		boolean first = true;
+		while (current != null || !stack.isEmpty()) {
+			while (current != null) {
+				stack.push(current);
+				current = current.left;
+			}
+			current = stack.pop();
+			if (!first) {
+				out.append(", ");
+			}
+			out.append(String.valueOf(current.data));
+			first = false;
+			current = current.right;
+		}
+		out.append(']');
+	}
+
+	/**
+	 * Produces tree like string representation of this tree.
+	 * The string is written in one pass by writeTreeFormatTo.
+	 * @return the tree, one node per line
+	 */
+	public String toStringTreeFormat() {
+		StringBuilder sb = new StringBuilder();
+		try {
+			writeTreeFormatTo(sb, Integer.MAX_VALUE);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex); // a StringBuilder does not throw
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes a tree like representation of this tree to the given output, in the
+	 * format of toStringTreeFormat: the nodes in preorder, one per line, indented
+	 * by their level, with null for a missing child.
+	 * Subtrees below maxDepth are written as a single ... line, so the top of a
+	 * large tree can be looked at without writing all of it.
+	 * The traversal uses an explicit stack, so a tall tree does not overflow
+	 * the call stack. WARNING: will not work if the data.toString returns more than one line
+	 * @param out where the text is written
+	 * @param maxDepth deepest level that is written, the root is at level 0
+	 * @throws IOException if the output throws it
+	 * @throws NullPointerException if out is null
+	 * @throws IllegalArgumentException if maxDepth is negative
+	 */
+	public void writeTreeFormatTo(Appendable out, int maxDepth)
+			throws IOException, NullPointerException, IllegalArgumentException {
+		if (out == null) {
+			throw new NullPointerException("Cannot write to a null output.");
+		}
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("The depth cannot be negative.");
+		}
+		NodeStack stack = new NodeStack(this.root);
+		int[] levels = new int[16]; //level of every node on the stack
+		String[] indents = new String[64]; //start of the lines of the first levels
+		stack.push(this.root);
+		while (!stack.isEmpty()) {
+			int level = levels[stack.size - 1];
+			BSTNode node = stack.pop();
+			//display the node
+			if (level > 0 && level < indents.length) {
+				if (indents[level] == null) {
+					indents[level] = "   ".repeat(level-1) + "|--";
+				}
+				out.append(indents[level]);
+			}
+			else if (level > 0) {
+				for (int i = 0; i < level-1; i++) {
+					out.append("   ");
+				}
+				out.append("|--");
+			}
+			if (node == null) {
+				out.append("null\n");
+				continue;
+			}
+			if (level > maxDepth) {
+				out.append("...\n");
+				continue;
+			}
+			out.append(String.valueOf(node.data)).append('\n');
+			//display the left subtree, then the right subtree
+			if (levels.length < stack.size + 2) {
+				levels = Arrays.copyOf(levels, levels.length * 2);
+			}
+			levels[stack.size] = level + 1;
+			stack.push(node.right);
+			levels[stack.size] = level + 1;
+			stack.push(node.left);
+		}
+	}
+
+	/**
+	 * Writes the elements of this tree to a snapshot file in ascending order,
+	 * each one encoded by the codec, so that load can rebuild the tree in O(N).
+	 * The file starts with a header of 20 bytes (magic number, version, flags
+	 * and number of elements, big endian) and, with a checksum, ends with the
+	 * CRC32C of everything before it.
+	 * The file is written next to the target under the name file.tmp, forced
+	 * to the disk and then moved over the target, so a crash while saving
+	 * leaves the previous snapshot as it was. To save a tree that other threads
+	 * keep changing, save its snapshot().
+	 * @param file the snapshot file
+	 * @param codec encoding of the elements
+	 * @param checksum true to end the file with a checksum
+	 * @throws IOException if the file cannot be written
+	 * @throws NullPointerException if the file or the codec is null
+	 */
+	public void save(Path file, KeyCodec<? super E> codec, boolean checksum) throws IOException, NullPointerException {
+		if (file == null || codec == null) {
+			throw new NullPointerException("Cannot save to a null file or with a null codec.");
+		}
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		CRC32C crc = checksum ? new CRC32C() : null;
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER);
+			buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION)
+					.putInt(checksum ? SNAPSHOT_CHECKSUM : 0).putLong(size());
+			NodeStack stack = new NodeStack(this.root);
+			BSTNode current = this.root;
+			while (current != null || !stack.isEmpty()) {
+				while (current != null) {
+					stack.push(current);
+					current = current.left;
+				}
+				current = stack.pop();
+				int start = buffer.position();
+				try {
+					codec.write(current.data, buffer);
+					current = current.right;
+				}
+				catch (BufferOverflowException ex) {
+					// write out what is before the element and encode it again
+					buffer.position(start);
+					buffer = drain(channel, buffer, crc);
+					stack.push(current);
+					current = null;
+				}
+			}
+			drain(channel, buffer, crc);
+			if (crc != null) {
+				buffer.clear();
+				buffer.putLong(crc.getValue());
+				drain(channel, buffer, null);
+			}
+			channel.force(true);
+		}
+		catch (Throwable ex) {
+			// whatever stopped the writing, including an Error, the partial file goes
+			try {
+				Files.deleteIfExists(temp);
+			}
+			catch (IOException cleanup) {
+				ex.addSuppressed(cleanup);
+			}
+			throw ex;
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Replaces the content of this tree by the elements of a snapshot file
+	 * written by save. The elements are already in order, so they are only
+	 * checked, not sorted, and the balanced tree is built from them in O(N)
+	 * like the constructor from a sorted array. The file is read through a
+	 * FileChannel in blocks of a megabyte. A file with a checksum is verified
+	 * before the tree is changed; if anything goes wrong the tree keeps its elements.
+	 * @param file the snapshot file
+	 * @param codec encoding of the elements, the one the file was saved with
+	 * @throws IOException if the file cannot be read, EOFException if it is cut short,
+	 *  StreamCorruptedException if its header, an element or its checksum is wrong
+	 * @throws NullPointerException if the file or the codec is null, or the codec returns null
+	 * @throws IllegalArgumentException if the elements are not in ascending order for this tree
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void load(Path file, KeyCodec<? extends E> codec)
+			throws IOException, NullPointerException, IllegalArgumentException {
+		if (file == null || codec == null) {
+			throw new NullPointerException("Cannot load from a null file or with a null codec.");
+		}
+		E[] arr;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER).limit(0);
+			while (buffer.remaining() < SNAPSHOT_HEADER) {
+				buffer = refill(channel, buffer, null);
+			}
+			if (buffer.getInt() != SNAPSHOT_MAGIC) {
+				throw new StreamCorruptedException(file + " is not a tree snapshot.");
+			}
+			int version = buffer.getInt();
+			if (version != SNAPSHOT_VERSION) {
+				throw new StreamCorruptedException("Unknown snapshot version " + version + ".");
+			}
+			int flags = buffer.getInt();
+			if ((flags & ~SNAPSHOT_CHECKSUM) != 0) {
+				throw new StreamCorruptedException("Unknown snapshot flags " + flags + ".");
+			}
+			long count = buffer.getLong();
+			// every element takes at least a byte, a wrong count must not allocate the array
+			if (count < 0 || count > channel.size() || count > Integer.MAX_VALUE - 8) {
+				throw new StreamCorruptedException("Wrong number of elements " + count + ".");
+			}
+			CRC32C crc = (flags & SNAPSHOT_CHECKSUM) != 0 ? new CRC32C() : null;
+			arr = (E[]) new Comparable[(int) count];
+			int i = 0;
+			while (i < arr.length) {
+				int start = buffer.position();
+				try {
+					arr[i] = codec.read(buffer);
+					i++;
+				}
+				catch (BufferUnderflowException ex) {
+					// the element goes on after the buffer, read it again with the rest
+					buffer.position(start);
+					buffer = refill(channel, buffer, crc);
+				}
+				catch (IllegalArgumentException ex) {
+					throw new StreamCorruptedException("Element " + i + " is corrupt: " + ex.getMessage());
+				}
+			}
+			if (crc != null) {
+				while (buffer.remaining() < Long.BYTES) {
+					buffer = refill(channel, buffer, crc);
+				}
+				crc.update(buffer.duplicate().flip());
+				if (buffer.getLong() != crc.getValue()) {
+					throw new StreamCorruptedException("The checksum of " + file + " does not match.");
+				}
+			}
+		}
+		bulkLoad(arr, true);
+	}
+
+	/**
+	 * Writes the bytes of the buffer to the channel and clears it. An empty
+	 * buffer is replaced by one twice as large, since the element that did
+	 * not fit in it is larger than the whole buffer.
+	 * @return the buffer to go on with
+	 */
+	private static ByteBuffer drain(FileChannel channel, ByteBuffer buffer, CRC32C crc) throws IOException {
+		if (buffer.position() == 0) {
+			return ByteBuffer.allocateDirect(buffer.capacity() * 2);
+		}
+		buffer.flip();
+		if (crc != null) {
+			crc.update(buffer.duplicate());
+		}
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		return buffer.clear();
+	}
+
+	/**
+	 * Moves the bytes after the position of the buffer to its start and reads
+	 * more of the channel after them. The bytes before the position, which
+	 * have been decoded, go into the checksum. A full buffer is replaced by
+	 * one twice as large, since the element that did not fit in it is larger
+	 * than the whole buffer.
+	 * @return the buffer to go on with, positioned at its start
+	 * @throws EOFException if the channel has no more bytes
+	 */
+	private static ByteBuffer refill(FileChannel channel, ByteBuffer buffer, CRC32C crc) throws IOException {
+		if (crc != null) {
+			crc.update(buffer.duplicate().flip());
+		}
+		if (buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
+			buffer = ByteBuffer.allocateDirect(buffer.capacity() * 2).put(buffer);
+		}
+		else {
+			buffer.compact();
+		}
+		int read = channel.read(buffer);
+		buffer.flip();
+		if (read < 0) {
+			throw new EOFException("The snapshot ends in the middle of an element.");
+		}
+		return buffer;
+	}
+
+
+
+
+
+
+
+	/**
+	 * This class represents a node of the mountain. It contains a constructor
+	 * for the node and methods for comparing the node, setting or updating its
+	 * height and level, checking if it has been visited by the hiker, and
+	 * calculating its balance factor.
+	 *
+	 * @author Chloe Baatar * @version 12/04/2022
+	 */
+	protected class BSTNode implements Comparable < BSTNode > {
+
+		// Create private variables for the node
+		protected E data;
+		protected BSTNode  left;
+		protected BSTNode  right;
+		protected int height;
+		protected int level;
+		protected boolean visited;
+		protected int size; //number of nodes in the subtree rooted at this node
+		protected Object owner; //owner token of the tree that created the node
+		protected long prefix; //KeyPrefix of data, 0 if the tree does not keep prefixes
+		protected long hash; //sum of the mixed hash codes of the elements in the subtree
+
+		/**
+		 * Constructor for a node of the mountain.
+		 *
+		 * @param data RestStop object for the node to contain.
+		 */
+		public BSTNode ( E data ) {
+			this.data = data;
+			this.size = 1;
+			this.owner = BST.this.owner;
+			this.prefix = prefixOf(data);
+			this.hash = mix(data);
+		}
+
+		/**
+		 * Constructor for a copy of a node, owned by the tree that makes the copy.
+		 *
+		 * @param other node to be copied.
+		 */
+		protected BSTNode ( BSTNode other ) {
+			this.data = other.data;
+			this.left = other.left;
+			this.right = other.right;
+			this.height = other.height;
+			this.level = other.level;
+			this.visited = other.visited;
+			this.size = other.size;
+			this.owner = BST.this.owner;
+			this.prefix = other.prefix;
+			this.hash = other.hash;
+		}
+
+		/**
+		 * Compares two nodes of the mountain.
+		 *
+		 * @param other node to be compared.
+		 * 
+		 * @throws NullPointerException if the parameter is null.
+		 *
+		 * @return a positive integer if the node's is greater than other's,
+		 * negative if it is less than, and zero if they're equal.
+		 */
+		public int compareTo ( BSTNode other ) throws NullPointerException {
+			if (other==null) {
+				throw new NullPointerException("Cannot compare to null node.");
+			}
+			return compare(this.data, this.prefix, other);
+		}
+
+		/**
+		 * Sets the height of the node.
+		 *
+		 * @param height integer height to be set.
+		 */
+		public void setHeight(int height) {
+			this.height = height;
+		}
+
+		/**
+		 * Updates the height of a node.
+		 */
+		public void updateHeight() {
+			// If the node is a leaf
+			if (this.left==null && this.right==null) {
+				this.height = 0; // set the height to 0
+			}
+			// If the node only has a right child
+			else if (this.left == null) {
+				// Set the height to one more than its child's
+				this.height = this.right.height + 1;
+			}
+			// If the node only has a left child
+			else if (this.right == null) {
+				// Set the height to one more than its child's
+				this.height = this.left.height + 1;
+			}
+			// If the node has two children
+			else {
+				// Set the height one more than the max of it's children's
+				this.height = 1 + Math.max( this.left.height, 
+						this.right.height );
+			}
+		}
+
+		/**
+		 * Updates the size of a node from the sizes of its children.
+		 */
+		public void updateSize() {
+			this.size = 1;
+			if (this.left != null)
+				this.size += this.left.size;
+			if (this.right != null)
+				this.size += this.right.size;
+		}
+
+		/**
+		 * Updates the content hash of a node from the hashes of its children.
+		 */
+		public void updateHash() {
+			this.hash = mix(this.data);
+			if (this.left != null)
+				this.hash += this.left.hash;
+			if (this.right != null)
+				this.hash += this.right.hash;
+		}
+
+		/**
+		 * Sets the level of a node.
+		 *
+		 * @param level integer level to be set.
+		 */
+		public void setLevel(int level) {
+			this.level = level;
+		}
+
+		/**
+		 * Sets the node's visited boolean to true.
+		 */
+		public void setVisited() {
+			this.visited = true;
+		}
+
+		/**
+		 * Calculates the balance factor of a node.
+		 *
+		 * @return balance factor (integer value between -2 and 2).
+		 */
+		public int balanceFactor () {
+			// If the node only has one child
+			if ( this.right == null ) {
+				return -this.height; // balance factor equals the nodes height
+			}
+			if ( this.left == null ) {
+				return this.height; // balance factor equals the nodes height
+			}
+			// If the node has two children, balance factor equals
+			// the difference between the height of the right and left child
+			return this.right.height - this.left.height;
+		}
+	}
+
+
+
+	/**
+	 * This class represents the construction of the subtree for one range of a
+	 * sorted array. Large ranges build their left and right halves as two
+	 * fork join tasks, small ranges use the recursive sortedArrToBST.
+	 */
+	private class BuildTask extends RecursiveTask<BSTNode> {
+
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 1 << 13; //ranges smaller than this are built sequentially
+
+		private final E[] arr;
+		private final int start;
+		private final int end;
+
+		BuildTask(E[] arr, int start, int end) {
+			this.arr = arr;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected BSTNode compute() {
+			if (end - start < THRESHOLD)
+				return sortedArrToBST(arr, start, end);
+
+			int mid = (start+end)/2;
+			BuildTask left = new BuildTask(arr, start, mid-1);
+			BuildTask right = new BuildTask(arr, mid+1, end);
+			left.fork();
+			BSTNode root = new BSTNode(arr[mid]);
+			root.right = right.compute();
+			root.left = left.join();
+			root.updateHeight();
+			root.updateSize();
+			root.updateHash();
+			return root;
+		}
+	}
+
+	/**
+	 * This class represents a task that merges two sorted arrays without duplicates
+	 * into an output array, keeping the elements chosen by the set operation.
+	 * Large inputs are split at the middle element of the longer range; its
+	 * position in the other range is found by binary search, and the two halves
+	 * are merged in parallel. Each half writes to its own part of the output,
+	 * which is as long as its two input ranges together, and the results are
+	 * then moved next to each other.
+	 * The task returns the number of elements it wrote at outStart.
+	 */
+	private class SetOperationTask extends RecursiveTask<Integer> {
+
+		private static final long serialVersionUID = 1L;
+		private static final int THRESHOLD = 1 << 13; //inputs smaller than this are merged sequentially
+
+		private final E[] a;
+		private final int aStart; //first index of the range of a
+		private final int aEnd; //index after the range of a
+		private final E[] b;
+		private final int bStart;
+		private final int bEnd;
+		private final E[] out;
+		private final int outStart;
+		private final boolean keepOnlyA;
+		private final boolean keepOnlyB;
+		private final boolean keepBoth;
+
+		SetOperationTask(E[] a, int aStart, int aEnd, E[] b, int bStart, int bEnd, E[] out, int outStart,
+				boolean keepOnlyA, boolean keepOnlyB, boolean keepBoth) {
+			this.a = a;
+			this.aStart = aStart;
+			this.aEnd = aEnd;
+			this.b = b;
+			this.bStart = bStart;
+			this.bEnd = bEnd;
+			this.out = out;
+			this.outStart = outStart;
+			this.keepOnlyA = keepOnlyA;
+			this.keepOnlyB = keepOnlyB;
+			this.keepBoth = keepBoth;
+		}
+
+		@Override
+		protected Integer compute() {
+			int aLength = aEnd - aStart;
+			int bLength = bEnd - bStart;
+			if (aLength + bLength < THRESHOLD)
+				return merge();
+
+			// split at the middle of the longer range
+			boolean pivotInA = aLength >= bLength;
+			E[] longer = pivotInA ? a : b;
+			E[] shorter = pivotInA ? b : a;
+			int mid = pivotInA ? (aStart + aEnd) >>> 1 : (bStart + bEnd) >>> 1;
+			E pivot = longer[mid];
+			int at = pivotInA ? lowerBound(b, bStart, bEnd, pivot) : lowerBound(a, aStart, aEnd, pivot);
+			boolean inBoth = at < (pivotInA ? bEnd : aEnd) && compare(shorter[at], pivot) == 0;
+			int after = inBoth ? at + 1 : at;
+
+			int aMid = pivotInA ? mid : at; //end of the left part of a
+			int aNext = pivotInA ? mid + 1 : after; //start of the right part of a
+			int bMid = pivotInA ? at : mid;
+			int bNext = pivotInA ? after : mid + 1;
+			int pivotSlot = outStart + (aMid - aStart) + (bMid - bStart);
+
+			SetOperationTask left = new SetOperationTask(a, aStart, aMid, b, bStart, bMid, out, outStart,
+					keepOnlyA, keepOnlyB, keepBoth);
+			SetOperationTask right = new SetOperationTask(a, aNext, aEnd, b, bNext, bEnd, out, pivotSlot + 1,
+					keepOnlyA, keepOnlyB, keepBoth);
+			left.fork();
+			int rightCount = right.compute();
+			int leftCount = left.join();
+
+			int count = leftCount;
+			if (inBoth ? keepBoth : (pivotInA ? keepOnlyA : keepOnlyB)) {
+				out[outStart + count++] = pivot;
+			}
+			System.arraycopy(out, pivotSlot + 1, out, outStart + count, rightCount);
+			return count + rightCount;
+		}
+
+		/**
+		 * Merges the two ranges in one pass.
+		 */
+		private int merge() {
+			int i = aStart;
+			int j = bStart;
+			int k = outStart;
+			while (i < aEnd && j < bEnd) {
+				int cmp = compare(a[i], b[j]);
+				if (cmp < 0) {
+					if (keepOnlyA)
+						out[k++] = a[i];
+					i++;
+				}
+				else if (cmp > 0) {
+					if (keepOnlyB)
+						out[k++] = b[j];
+					j++;
+				}
+				else {
+					if (keepBoth)
+						out[k++] = a[i];
+					i++;
+					j++;
+				}
+			}
+			if (keepOnlyA) {
+				System.arraycopy(a, i, out, k, aEnd - i);
+				k += aEnd - i;
+			}
+			if (keepOnlyB) {
+				System.arraycopy(b, j, out, k, bEnd - j);
+				k += bEnd - j;
+			}
+			return k - outStart;
+		}
+
+		/**
+		 * Returns the first index of the range whose element is not less than e.
+		 */
+		private int lowerBound(E[] arr, int start, int end, E e) {
+			while (start < end) {
+				int mid = (start + end) >>> 1;
+				if (compare(arr[mid], e) < 0)
+					start = mid + 1;
+				else
+					end = mid;
+			}
+			return start;
+		}
+	}
+
+	/**
+	 * This class represents a stack of nodes backed by an array, used by the
+	 * traversals instead of java.util.Stack, whose methods are synchronized.
+	 * It starts with room for the height of the subtree and doubles when a
+	 * tree that is not balanced needs more.
+	 */
+	private class NodeStack {
+
+		private Object[] items;
+		private int size;
+
+		/**
+		 * Creates a stack for the traversal of the subtree with the given root.
+		 * @param root root of the subtree, may be null
+		 */
+		NodeStack(BSTNode root) {
+			int height = root == null ? 0 : root.height + 1;
+			items = new Object[Math.max(height, 16)];
+		}
+
+		void push(BSTNode node) {
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size * 2);
+			}
+			items[size++] = node;
+		}
+
+		@SuppressWarnings("unchecked")
+		BSTNode pop() {
+			BSTNode node = (BSTNode) items[--size];
+			items[size] = null;
+			return node;
+		}
+
+		@SuppressWarnings("unchecked")
+		BSTNode peek() {
+			return (BSTNode) items[size-1];
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+
+		void clear() {
+			while (size > 0) {
+				items[--size] = null;
+			}
+		}
+	}
+
+	/**
+	 * This class represents a view of the elements of the tree that lie between
+	 * two bounds. A null bound means the range is open on that side.
+	 * The view keeps no elements of its own: every method works on the tree,
+	 * so the view always shows its current content.
+	 */
+	private class RangeView extends AbstractSet<E> implements SortedSet<E> {
+
+		private final E lo; //lowest bound, null if there is none
+		private final boolean loInclusive;
+		private final E hi; //highest bound, null if there is none
+		private final boolean hiInclusive;
+
+		RangeView(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+			this.lo = lo;
+			this.loInclusive = loInclusive;
+			this.hi = hi;
+			this.hiInclusive = hiInclusive;
+		}
 
-		try {
-			E obj = (E) o;
-			Comparable<E> co = (Comparable<E>) o;
-			remove(root, obj);
-			if(Objects.equals(co, tmp))
-				found = true;
-			else
-				found = false;
+		private boolean tooLow(E e) {
+			if (lo == null)
+				return false;
+			int cmp = compare(e, lo);
+			return cmp < 0 || (cmp == 0 && !loInclusive);
 		}
-		catch (ClassCastException ex) {
-			System.err.println("ClassCastException has been thrown");
+
+		private boolean tooHigh(E e) {
+			if (hi == null)
+				return false;
+			int cmp = compare(e, hi);
+			return cmp > 0 || (cmp == 0 && !hiInclusive);
 		}
-		return found; 
 
+		private boolean inRange(E e) {
+			return !tooLow(e) && !tooHigh(e);
+		}
 
-	}
+		/**
+		 * @return the number of elements in the range, in O(H)
+		 */
+		@Override
+		public int size() {
+			int below = hi == null ? BST.this.size() : countBelow(hi, hiInclusive);
+			int skipped = lo == null ? 0 : countBelow(lo, !loInclusive);
+			return Math.max(below - skipped, 0);
+		}
 
-	E tmp; // datafield that contains the data of the removed root by the recursive remove method
-	/**
-	 * Recursive remove method that removes a node and replaces it by its inOrderSuccessor
-	 * the node does not get replaced if it has no children
-	 * @param root
-	 * @param value to be removed 
-	 * @return the root
-	 */ 
-	BSTNode remove(BSTNode root, E value) {
+		@Override
+		public boolean isEmpty() {
+			return lowest() == null;
+		}
 
-		if (root == null)
-			return root;
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean contains(Object o) {
+			return o != null && inRange((E) o) && BST.this.contains(o);
+		}
 
-		if (value.compareTo(root.data) < 0) {      //if value is less than root, look in the left subtree
-			root.left = remove(root.left, value);
-		} else if (value.compareTo(root.data) > 0) { //if value is more than root, look in the right subtree
-			root.right = remove(root.right, value);
-		} else { //if the value is equal to the root
-			tmp = root.data; //storing the data that is equal to the root
-			if (root.left == null) 
-				return root.right;
-			else if (root.right == null)
-				return root.left;
+		/**
+		 * Adds the element to the tree.
+		 * @throws IllegalArgumentException if the element is outside of the range
+		 */
+		@Override
+		public boolean add(E e) throws IllegalArgumentException {
+			if (e == null) {
+				throw new NullPointerException("Null values cannot be added to the tree.");
+			}
+			if (!inRange(e)) {
+				throw new IllegalArgumentException("The element is outside of the range of the view.");
+			}
+			return BST.this.add(e);
+		}
 
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean remove(Object o) {
+			return o != null && inRange((E) o) && BST.this.remove(o);
+		}
 
+		@Override
+		public void clear() {
+			// remove through the iterator, so only the range is touched
+			Iterator<E> it = iterator();
+			while (it.hasNext()) {
+				it.next();
+				it.remove();
+			}
+		}
 
-			root.data = inOrderSuccessor(root.right);
-			root.right = remove(root.right, root.data);
+		@Override
+		public Iterator<E> iterator() {
+			return new RangeIterator();
 		}
 
-		return root;
+		@Override
+		public Comparator<? super E> comparator() {
+			return BST.this.comparator; // null for the natural ordering
+		}
 
-	}
-	/**
-	 * Method that returns the minimum value of the subtree with a given root
-	 * called inside the recursive remove method to find the inOrderSuccessor or a node
-	 * @param root
-	 * @return
-	 */
-	private E inOrderSuccessor(BSTNode root) {
-		E minimum =  root.data;
-		while (root.left != null) {
-			minimum = root.left.data;
-			root = root.left;
+		@Override
+		public E first() throws NoSuchElementException {
+			E e = lowest();
+			if (e == null) {
+				throw new NoSuchElementException("The range is empty, no first element available.");
+			}
+			return e;
 		}
-		return minimum;
-	}
 
-	@Override
-	/**
-	 * Helper method that calls the recursive toString method and 
-	 * returns the elements in the tree in inorder traversal enclosed in  square brackets []
-	 */
+		@Override
+		public E last() throws NoSuchElementException {
+			E e = highest();
+			if (e == null) {
+				throw new NoSuchElementException("The range is empty, no last value available.");
+			}
+			return e;
+		}
 
-	public String toString() {
+		/**
+		 * @return the least element of the tree in the range, or null if there is none
+		 */
+		private E lowest() {
+			E e;
+			if (lo == null)
+				e = BST.this.isEmpty() ? null : BST.this.first();
+			else
+				e = loInclusive ? BST.this.ceiling(lo) : BST.this.higher(lo);
+			return e == null || tooHigh(e) ? null : e;
+		}
 
-		return "[" + toString( this.root).substring(0, toString( this.root).length() - 2) + "]";
-	}
-	/**
-	 * Recursive method that returns a string containing the tree elements in inorder traversal
-	 * enclosed in  square brackets []
-	 * @param root
-	 * @return String
-	 */
-	private String toString(BSTNode root) {
-		if (root == null)
-			return "";
-		StringBuffer sb = new StringBuffer();
-		sb.append(toString(root.left));
-		sb.append(root.data);
-		sb.append(", ");
-		sb.append(toString(root.right));
-		return String.valueOf(sb);
+		/**
+		 * @return the greatest element of the tree in the range, or null if there is none
+		 */
+		private E highest() {
+			E e;
+			if (hi == null)
+				e = BST.this.isEmpty() ? null : BST.this.last();
+			else
+				e = hiInclusive ? BST.this.floor(hi) : BST.this.lower(hi);
+			return e == null || tooLow(e) ? null : e;
+		}
 
-	}
+		/**
+		 * @return the least element in the range greater than or equal to e, or null
+		 */
+		public E ceiling(E e) {
+			if (tooLow(e))
+				return lowest();
+			E result = BST.this.ceiling(e);
+			return result == null || tooHigh(result) ? null : result;
+		}
+
+		/**
+		 * @return the least element in the range strictly greater than e, or null
+		 */
+		public E higher(E e) {
+			if (tooLow(e))
+				return lowest();
+			E result = BST.this.higher(e);
+			return result == null || tooHigh(result) ? null : result;
+		}
 
+		/**
+		 * @return the greatest element in the range less than or equal to e, or null
+		 */
+		public E floor(E e) {
+			if (tooHigh(e))
+				return highest();
+			E result = BST.this.floor(e);
+			return result == null || tooLow(result) ? null : result;
+		}
 
+		/**
+		 * @return the greatest element in the range strictly less than e, or null
+		 */
+		public E lower(E e) {
+			if (tooHigh(e))
+				return highest();
+			E result = BST.this.lower(e);
+			return result == null || tooLow(result) ? null : result;
+		}
 
+		@Override
+		public SortedSet<E> subSet(E from, E to) throws NullPointerException, IllegalArgumentException {
+			if (from == null || to == null) {
+				throw new NullPointerException("Range bounds cannot be null.");
+			}
+			if (compare(from, to) > 0) {
+				throw new IllegalArgumentException("The start of the range is greater than its end.");
+			}
+			return subView(from, true, to, false);
+		}
 
+		@Override
+		public SortedSet<E> headSet(E to) throws NullPointerException, IllegalArgumentException {
+			if (to == null) {
+				throw new NullPointerException("Range bounds cannot be null.");
+			}
+			return subView(lo, loInclusive, to, false);
+		}
 
-	/**
-	 * Helper method that calls the recursive toStringTree
-	 * @return
-	 */
-	public String toStringTreeFormat() {
-		StringBuffer sb = new StringBuffer(); 
-		toStringTree(sb, root, 0);
-		return sb.toString();
-	}
-	/**
-	 * Produces tree like string representation of this tree. 
-	 * Returns a string representation of this tree in a tree-like format. 
-	 * @param sb
-	 * @param node
-	 * @param level
-	 *This method is a work of Joanna Klukowska
-	 **/
-	//uses preorder traversal to display the tree 
-	//WARNING: will not work if the data.toString returns more than one line 
-	private void toStringTree( StringBuffer sb, BSTNode node, int level ) {
-		//display the node 
-		if (level > 0 ) {
-			for (int i = 0; i < level-1; i++) {
-				sb.append("   ");
-			}
-			sb.append("|--");
+		@Override
+		public SortedSet<E> tailSet(E from) throws NullPointerException, IllegalArgumentException {
+			if (from == null) {
+				throw new NullPointerException("Range bounds cannot be null.");
+			}
+			return subView(from, true, hi, hiInclusive);
 		}
-		if (node == null) {
-			sb.append( "null\n"); 
-			return;
+
+		/**
+		 * Returns a view of a part of this range. A null bound keeps the bound of this view.
+		 * @throws IllegalArgumentException if a bound is outside of this range
+		 */
+		private SortedSet<E> subView(E from, boolean fromInclusive, E to, boolean toInclusive)
+				throws IllegalArgumentException {
+			if ((from != null && (fromInclusive ? !inRange(from) : outside(from)))
+					|| (to != null && (toInclusive ? !inRange(to) : outside(to)))) {
+				throw new IllegalArgumentException("The bounds are outside of the range of the view.");
+			}
+			return new RangeView(from, fromInclusive, to, toInclusive);
 		}
-		else {
-			sb.append( node.data + "\n"); 
+
+		/**
+		 * @return true if e is below lo or above hi, whether or not the bounds are inclusive
+		 */
+		private boolean outside(E e) {
+			return (lo != null && compare(e, lo) < 0) || (hi != null && compare(e, hi) > 0);
 		}
 
-		//display the left subtree 
-		toStringTree(sb, node.left, level+1); 
-		//display the right subtree 
-		toStringTree(sb, node.right, level+1); 
-	}
+		/**
+		 * This class represents an iterator that starts with a cursor at the
+		 * lower bound and stops at the first element past the upper bound.
+		 */
+		private class RangeIterator implements Iterator<E> {
 
+			private final Cursor cursor;
+			private E pending; //next element to return, null at the end
+			private E last; //element returned by the last call of next
 
+			RangeIterator() {
+				cursor = new Cursor();
+				if (lo == null)
+					cursor.seekStart();
+				else
+					cursor.seek(lo, loInclusive);
+				advance();
+			}
 
+			private void advance() {
+				pending = null;
+				if (cursor.hasNext()) {
+					E e = cursor.next();
+					if (!tooHigh(e))
+						pending = e;
+				}
+			}
 
+			public boolean hasNext() {
+				return pending != null;
+			}
 
+			public E next() {
+				if (pending == null) {
+					throw new NoSuchElementException("No more elements in the range.");
+				}
+				last = pending;
+				advance();
+				return last;
+			}
 
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException("next() has not been called.");
+				}
+				BST.this.remove(last);
+				last = null;
+				// the tree changed, find the position after pending again
+				if (pending != null)
+					cursor.seek(pending, false);
+			}
+		}
+	}
 
 	/**
-	 * This class represents a node of the mountain. It contains a constructor
-	 * for the node and methods for comparing the node, setting or updating its
-	 * height and level, checking if it has been visited by the hiker, and
-	 * calculating its balance factor.
-	 *
-	 * @author Chloe Baatar * @version 12/04/2022
+	 * This class represents a cursor that moves through the tree in both
+	 * directions. Like a ListIterator it sits between two elements: next()
+	 * returns the element after it and previous() the element before it.
+	 * The cursor keeps the path from the root to its current node, so moving
+	 * to the neighbour costs amortized O(1) and seeking costs one descent.
+	 * A cursor is not updated when the tree changes; seek again after a change.
 	 */
-	protected class BSTNode implements Comparable < BSTNode > {
+	public class Cursor implements Iterator<E> {
 
-		// Create private variables for the node
-		protected E data;
-		protected BSTNode  left;
-		protected BSTNode  right;
-		protected int height;
-		protected int level;
-		protected boolean visited;
+		private final NodeStack path; //nodes from the root to the current node
+		private BSTNode current; //node next to the position, null if the tree is empty
+		private boolean before; //true if the position is just before current, false if just after
+		private int leftTurns; //number of steps of the path that go to a left child
+		private int rightTurns; //number of steps of the path that go to a right child
+
+		private Cursor() {
+			path = new NodeStack(root);
+		}
 
 		/**
-		 * Constructor for a node of the mountain.
-		 *
-		 * @param data RestStop object for the node to contain.
+		 * Moves the cursor before the least element that is greater than (or
+		 * equal to, if inclusive) the given element, or after the last element
+		 * if there is none.
+		 * @param from the value to seek
+		 * @param inclusive true to stop before an element equal to from
+		 * @throws NullPointerException if from is null
 		 */
-		public BSTNode ( E data ) {
-			this.data = data;
+		public void seek(E from, boolean inclusive) throws NullPointerException {
+			if (from == null) {
+				throw new NullPointerException("Cannot seek a null value.");
+			}
+			clear();
+			int depth = 0; //length of the path to the best candidate so far
+			long prefix = prefixOf(from);
+			BSTNode node = root;
+			while (node != null) {
+				push(node);
+				int cmp = compare(from, prefix, node);
+				if (cmp < 0 || (cmp == 0 && inclusive)) {
+					depth = path.size;
+					if (cmp == 0)
+						break;
+					node = node.left;
+				}
+				else
+					node = node.right;
+			}
+			if (depth == 0) {
+				seekEnd();
+				return;
+			}
+			while (path.size > depth) {
+				pop();
+			}
+			current = path.peek();
+			before = true;
 		}
 
 		/**
-		 * Compares two nodes of the mountain.
-		 *
-		 * @param other node to be compared.
-		 * 
-		 * @throws NullPointerException if the parameter is null.
-		 *
-		 * @return a positive integer if the node's is greater than other's,
-		 * negative if it is less than, and zero if they're equal.
+		 * Moves the cursor before the first element.
 		 */
-		public int compareTo ( BSTNode other ) throws NullPointerException {
-			if (other==null) {
-				throw new NullPointerException("Cannot compare to null node.");
+		public void seekStart() {
+			clear();
+			for (BSTNode node = root; node != null; node = node.left) {
+				push(node);
 			}
-			return this.data.compareTo(other.data);
+			current = path.isEmpty() ? null : path.peek();
+			before = true;
 		}
 
 		/**
-		 * Sets the height of the node.
-		 *
-		 * @param height integer height to be set.
+		 * Moves the cursor after the last element.
 		 */
-		public void setHeight(int height) {
-			this.height = height;
+		public void seekEnd() {
+			clear();
+			for (BSTNode node = root; node != null; node = node.right) {
+				push(node);
+			}
+			current = path.isEmpty() ? null : path.peek();
+			before = false;
 		}
 
 		/**
-		 * Updates the height of a node.
+		 * @return true if there is an element after the cursor
 		 */
-		public void updateHeight() {
-			// If the node is a leaf
-			if (this.left==null && this.right==null) {
-				this.height = 0; // set the height to 0
-			}
-			// If the node only has a right child
-			else if (this.left == null) {
-				// Set the height to one more than its child's
-				this.height = this.right.height + 1;
-			}
-			// If the node only has a left child
-			else if (this.right == null) {
-				// Set the height to one more than its child's
-				this.height = this.left.height + 1;
+		public boolean hasNext() {
+			//after current there is its right subtree, or an ancestor whose left subtree holds current
+			return current != null && (before || current.right != null || leftTurns > 0);
+		}
+
+		/**
+		 * @return true if there is an element before the cursor
+		 */
+		public boolean hasPrevious() {
+			//before current there is its left subtree, or an ancestor whose right subtree holds current
+			return current != null && (!before || current.left != null || rightTurns > 0);
+		}
+
+		/**
+		 * Moves the cursor forward over one element.
+		 * @return the element after the cursor
+		 * @throws NoSuchElementException if the cursor is after the last element
+		 */
+		public E next() throws NoSuchElementException {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more elements in the tree.");
 			}
-			// If the node has two children
-			else {
-				// Set the height one more than the max of it's children's
-				this.height = 1 + Math.max( this.left.height, 
-						this.right.height );
+			if (!before) {
+				successor();
 			}
+			before = false;
+			return current.data;
 		}
 
 		/**
-		 * Sets the level of a node.
-		 *
-		 * @param level integer level to be set.
+		 * Moves the cursor backward over one element.
+		 * @return the element before the cursor
+		 * @throws NoSuchElementException if the cursor is before the first element
 		 */
-		public void setLevel(int level) {
-			this.level = level;
+		public E previous() throws NoSuchElementException {
+			if (!hasPrevious()) {
+				throw new NoSuchElementException("No previous elements in the tree.");
+			}
+			if (before) {
+				predecessor();
+			}
+			before = true;
+			return current.data;
+		}
+
+		private void push(BSTNode node) {
+			if (!path.isEmpty()) {
+				if (path.peek().left == node)
+					leftTurns++;
+				else
+					rightTurns++;
+			}
+			path.push(node);
+		}
+
+		private BSTNode pop() {
+			BSTNode node = path.pop();
+			if (!path.isEmpty()) {
+				if (path.peek().left == node)
+					leftTurns--;
+				else
+					rightTurns--;
+			}
+			return node;
+		}
+
+		private void clear() {
+			path.clear();
+			leftTurns = 0;
+			rightTurns = 0;
 		}
 
 		/**
-		 * Sets the node's visited boolean to true.
+		 * Moves current to the next node in inorder, which has to exist.
 		 */
-		public void setVisited() {
-			this.visited = true;
+		private void successor() {
+			BSTNode node = path.peek();
+			if (node.right != null) {
+				// the smallest node of the right subtree
+				for (node = node.right; node != null; node = node.left) {
+					push(node);
+				}
+			}
+			else {
+				// the first ancestor reached from its left subtree
+				BSTNode child = pop();
+				while (path.peek().right == child) {
+					child = pop();
+				}
+			}
+			current = path.peek();
 		}
 
 		/**
-		 * Calculates the balance factor of a node.
-		 *
-		 * @return balance factor (integer value between -2 and 2).
+		 * Moves current to the previous node in inorder, which has to exist.
 		 */
-		public int balanceFactor () {
-			// If the node only has one child
-			if ( this.right == null ) {
-				return -this.height; // balance factor equals the nodes height
+		private void predecessor() {
+			BSTNode node = path.peek();
+			if (node.left != null) {
+				// the largest node of the left subtree
+				for (node = node.left; node != null; node = node.right) {
+					push(node);
+				}
 			}
-			if ( this.left == null ) {
-				return this.height; // balance factor equals the nodes height
+			else {
+				// the first ancestor reached from its right subtree
+				BSTNode child = pop();
+				while (path.peek().left == child) {
+					child = pop();
+				}
 			}
-			// If the node has two children, balance factor equals
-			// the difference between the height of the right and left child
-			return this.right.height - this.left.height;
+			current = path.peek();
 		}
 	}
 
+	/**
+	 * This class represents a spliterator over a part of the tree. The part is
+	 * an optional single node followed by a whole subtree, in inorder.
+	 * Splitting hands out the single node and the left half of the subtree, and
+	 * keeps the root of the subtree followed by its right half, so both parts
+	 * keep the same shape. Once the traversal has started the spliterator
+	 * walks the rest with a stack and does not split anymore.
+	 */
+	private class BSTSpliterator implements Spliterator<E> {
+
+		private BSTNode single; //node that comes before the subtree, may be null
+		private BSTNode subtree; //subtree that comes after the single node, may be null
+		private NodeStack stack; //created when the traversal starts
+		private long remaining; //number of elements left
+
+		BSTSpliterator(BSTNode single, BSTNode subtree) {
+			this.single = single;
+			this.subtree = subtree;
+			this.remaining = (single == null ? 0 : 1) + size(subtree);
+		}
+
+		@Override
+		public Spliterator<E> trySplit() {
+			while (stack == null && subtree != null) {
+				BSTNode prefixSingle = single;
+				BSTNode prefixTree = subtree.left;
+				single = subtree;
+				subtree = subtree.right;
+				if (prefixSingle == null && prefixTree == null) {
+					continue; // nothing to hand out, move down to the right
+				}
+				BSTSpliterator prefix = new BSTSpliterator(prefixSingle, prefixTree);
+				remaining -= prefix.remaining;
+				return prefix;
+			}
+			return null;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action) {
+			if (action == null) {
+				throw new NullPointerException("Action cannot be null.");
+			}
+			if (single != null) {
+				E data = single.data;
+				single = null;
+				remaining--;
+				action.accept(data);
+				return true;
+			}
+			if (stack == null) {
+				stack = new NodeStack(subtree);
+				pushLeft(subtree);
+				subtree = null;
+			}
+			if (stack.isEmpty()) {
+				return false;
+			}
+			BSTNode current = stack.pop();
+			pushLeft(current.right);
+			remaining--;
+			action.accept(current.data);
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super E> action) {
+			while (tryAdvance(action)) {
+				// keep going
+			}
+		}
 
+		private void pushLeft(BSTNode node) {
+			while (node != null) {
+				stack.push(node);
+				node = node.left;
+			}
+		}
+
+		@Override
+		public long estimateSize() {
+			return remaining;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+					| Spliterator.NONNULL | Spliterator.SIZED | Spliterator.SUBSIZED;
+		}
+
+		@Override
+		public Comparator<? super E> getComparator() {
+			return comparator; // null for the natural ordering
+		}
+	}
 
 	/**
 	 * This class represents an inOrderIterator for BST class
@@ -911,10 +2679,10 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 	 */
 	private class BSTIterator implements Iterator<E> {
 
-		private Stack<BSTNode> stack;
+		private NodeStack stack;
 
 		public BSTIterator(BSTNode root) {
-			stack = new Stack<>();
+			stack = new NodeStack(root);
 			if (root != null)
 				init(root);
 		}
@@ -932,16 +2700,15 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 		 * @return the next smallest element
 		 */
 		public E next() {
-			if (hasNext()) {
-
-				BSTNode current = stack.pop();
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more elements in the tree.");
+			}
 
-				process(current.right);
+			BSTNode current = stack.pop();
 
-				return current.data;
-			}
+			process(current.right);
 
-			return null;
+			return current.data;
 		}
 
 		private void process(BSTNode root) {
@@ -962,9 +2729,9 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 	 *
 	 */
 	private class PreOrderIterator implements Iterator <E> {
-		private Stack<BSTNode> stack;
+		private NodeStack stack;
 		public PreOrderIterator(BSTNode root) {
-			stack = new Stack<>();
+			stack = new NodeStack(root);
 			if (root != null)
 				init(root);
 		}
@@ -975,6 +2742,9 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 		 * @return the next smallest element
 		 */
 		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more elements in the tree.");
+			}
 			BSTNode node = stack.pop();
 
 			if (node.right != null)
@@ -1000,9 +2770,9 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 	 */
 	private class PostOrderIterator implements Iterator<E>{
 
-		private Stack<BSTNode> stack;
+		private NodeStack stack;
 		public PostOrderIterator(BSTNode root) {
-			stack = new Stack<>();
+			stack = new NodeStack(root);
 			init(root);
 		}
 
@@ -1023,6 +2793,9 @@ public class BST<E extends Comparable<E>> extends Object implements Iterable<E>{
 		 * @return the next smallest element
 		 */
 		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException("No more elements in the tree.");
+			}
 			BSTNode node = stack.pop();
 			if (!stack.isEmpty()) {
 				if (node == stack.peek().left) {
@@ -0,0 +1,1331 @@
+package project4;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Simple timing harness that compares the tree implementations.
+ * Every measurement is repeated a few times so that the JIT has compiled
+ * the code before the last (reported) round.
+ * Run with: java project4.BSTBenchmark [name of a benchmark]
+ */
+public class BSTBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		String which = args.length > 0 ? args[0] : "all";
+		if (which.equals("all") || which.equals("insertion"))
+			insertionOrder(10_000);
+		if (which.equals("all") || which.equals("concurrent"))
+			readMostly(1_000_000, 2_000_000);
+		if (which.equals("all") || which.equals("primitive"))
+			primitive(2_000_000);
+		if (which.equals("all") || which.equals("pool"))
+			pool(2_000_000);
+		if (which.equals("all") || which.equals("offheap"))
+			offHeap(5_000_000);
+		if (which.equals("all") || which.equals("bulkload"))
+			bulkLoad(5_000_000);
+		if (which.equals("all") || which.equals("stream"))
+			streams(5_000_000);
+		if (which.equals("all") || which.equals("scan"))
+			scan(5_000_000);
+		if (which.equals("all") || which.equals("cursor"))
+			pages(2_000_000, 100_000, 100);
+		if (which.equals("all") || which.equals("range"))
+			rangeCounts(2_000_000, 10_000);
+		if (which.equals("all") || which.equals("split"))
+			splitJoin(1_000_000);
+		if (which.equals("all") || which.equals("setops"))
+			setOperations(2_000_000);
+		if (which.equals("all") || which.equals("comparisons"))
+			comparisons(100_000);
+		if (which.equals("all") || which.equals("comparator"))
+			orderings(1_000_000);
+		if (which.equals("all") || which.equals("prefix"))
+			prefixes(1_000_000);
+		if (which.equals("all") || which.equals("diff"))
+			replicas(1_000_000, 10);
+		if (which.equals("all") || which.equals("dump"))
+			dump(2_000_000);
+		if (which.equals("all") || which.equals("snapshot"))
+			snapshots(5_000_000);
+		if (which.equals("all") || which.equals("wal"))
+			durable();
+		if (which.equals("all") || which.equals("paged"))
+			paged(2_000_000, 200_000);
+		if (which.equals("all") || which.equals("frozen"))
+			frozen(10_000_000, 2_000_000);
+		if (which.equals("all") || which.equals("btree"))
+			wideNodes(new int[] { 1_000, 10_000, 100_000, 1_000_000, 4_000_000 }, 1_000_000);
+		if (which.equals("all") || which.equals("splay"))
+			skewed(1_000_000, 2_000_000);
+	}
+
+	/**
+	 * Compares the plain and the balanced tree when the keys are added in
+	 * sorted order and in random order, and then looks every key up.
+	 * The plain tree is kept small because sorted input turns it into a list.
+	 *
+	 * @param n number of keys
+	 */
+	static void insertionOrder(int n) {
+		Integer[] sorted = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			sorted[i] = i;
+		}
+		Integer[] random = shuffled(sorted, 42);
+
+		System.out.println("insertion order, n = " + n + " (ns per operation)");
+		System.out.printf("%-8s %-8s %10s %10s %10s%n", "tree", "order", "add", "contains", "floor");
+		for (int round = 0; round < ROUNDS; round++) {
+			boolean print = round == ROUNDS - 1;
+			run("BST", "sorted", new BST<Integer>(), sorted, random, print);
+			run("BST", "random", new BST<Integer>(), random, random, print);
+			run("AVLBST", "sorted", new AVLBST<Integer>(), sorted, random, print);
+			run("AVLBST", "random", new AVLBST<Integer>(), random, random, print);
+		}
+	}
+
+	private static void run(String name, String order, BST<Integer> tree,
+			Integer[] keys, Integer[] probes, boolean print) {
+		long start = System.nanoTime();
+		for (Integer k : keys) {
+			tree.add(k);
+		}
+		long add = System.nanoTime() - start;
+
+		int hits = 0;
+		start = System.nanoTime();
+		for (Integer k : probes) {
+			if (tree.contains(k))
+				hits++;
+		}
+		long contains = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (Integer k : probes) {
+			if (tree.floor(k) != null)
+				hits++;
+		}
+		long floor = System.nanoTime() - start;
+
+		if (print) {
+			System.out.printf("%-8s %-8s %10d %10d %10d%n", name, order, add / keys.length,
+					contains / probes.length, floor / probes.length);
+		}
+		sink += hits;
+	}
+
+	/**
+	 * Runs a mix of 90% contains, 5% add and 5% remove from 1, 2, 4 and 8
+	 * threads, once against a ConcurrentBST and once against an AVLBST
+	 * guarded by a single lock.
+	 *
+	 * @param n number of keys in the tree
+	 * @param ops total number of operations, split between the threads
+	 */
+	static void readMostly(int n, int ops) {
+		ConcurrentBST<Integer> concurrent = new ConcurrentBST<>();
+		AVLBST<Integer> locked = new AVLBST<>();
+		for (int i = 0; i < n; i += 2) {
+			concurrent.add(i);
+			locked.add(i);
+		}
+		System.out.println("read mostly mix, n = " + n + " (million operations per second)");
+		System.out.printf("%-8s %14s %14s%n", "threads", "ConcurrentBST", "locked AVLBST");
+		for (int threads = 1; threads <= 8; threads *= 2) {
+			double lockFree = 0;
+			double global = 0;
+			for (int round = 0; round < ROUNDS; round++) {
+				lockFree = mix(threads, ops, n, concurrent::contains, concurrent::add, concurrent::remove);
+				global = mix(threads, ops, n,
+						k -> { synchronized (locked) { return locked.contains(k); } },
+						k -> { synchronized (locked) { return locked.add(k); } },
+						k -> { synchronized (locked) { return locked.remove(k); } });
+			}
+			System.out.printf("%-8d %14.2f %14.2f%n", threads, lockFree, global);
+		}
+	}
+
+	private static double mix(int threads, int ops, int n, Predicate<Integer> contains,
+			Predicate<Integer> add, Predicate<Integer> remove) {
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				int hits = 0;
+				for (int i = 0; i < ops / threads; i++) {
+					int k = random.nextInt(n);
+					int op = random.nextInt(20);
+					boolean hit = op == 0 ? add.test(k) : op == 1 ? remove.test(k) : contains.test(k);
+					if (hit)
+						hits++;
+				}
+				sink += hits;
+			});
+		}
+		long start = System.nanoTime();
+		for (Thread worker : workers)
+			worker.start();
+		for (Thread worker : workers) {
+			try {
+				worker.join();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return ops / ((System.nanoTime() - start) / 1e3);
+	}
+
+	/**
+	 * Compares the heap used by an AVLBST of boxed Integers with an IntBST
+	 * holding the same keys, and the time of looking every key up.
+	 *
+	 * @param n number of keys
+	 */
+	static void primitive(int n) {
+		int[] keys = new int[n];
+		Random random = new Random(42);
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextInt();
+		}
+		System.out.println("primitive keys, n = " + n);
+		System.out.printf("%-8s %14s %14s%n", "tree", "bytes/element", "contains ns");
+
+		long before = usedMemory();
+		AVLBST<Integer> boxed = new AVLBST<>();
+		for (int k : keys)
+			boxed.add(k);
+		long boxedBytes = usedMemory() - before;
+		long boxedTime = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int hits = 0;
+			for (int k : keys) {
+				if (boxed.contains(k))
+					hits++;
+			}
+			boxedTime = System.nanoTime() - start;
+			sink += hits;
+		}
+		System.out.printf("%-8s %14d %14d%n", "AVLBST", boxedBytes / boxed.size(), boxedTime / n);
+		boxed = null;
+
+		before = usedMemory();
+		IntBST primitive = new IntBST();
+		for (int k : keys)
+			primitive.add(k);
+		long primitiveBytes = usedMemory() - before;
+		long primitiveTime = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			int hits = 0;
+			for (int k : keys) {
+				if (primitive.contains(k))
+					hits++;
+			}
+			primitiveTime = System.nanoTime() - start;
+			sink += hits;
+		}
+		System.out.printf("%-8s %14d %14d%n", "IntBST", primitiveBytes / primitive.size(), primitiveTime / n);
+	}
+
+	/**
+	 * Compares an AVLBST with a PooledBST holding the same elements: the heap
+	 * used by the tree structure (the elements are shared) and the time of
+	 * contains and floor descents.
+	 *
+	 * @param n number of elements
+	 */
+	static void pool(int n) {
+		Integer[] keys = new Integer[n];
+		Random random = new Random(42);
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextInt();
+		}
+		System.out.println("node pool, n = " + n);
+		System.out.printf("%-10s %14s %12s %12s%n", "tree", "bytes/element", "contains ns", "floor ns");
+
+		long before = usedMemory();
+		AVLBST<Integer> nodes = new AVLBST<>();
+		for (Integer k : keys)
+			nodes.add(k);
+		long nodeBytes = usedMemory() - before;
+		long[] nodeTimes = descents(nodes::contains, nodes::floor, keys);
+		System.out.printf("%-10s %14d %12d %12d%n", "AVLBST", nodeBytes / nodes.size(),
+				nodeTimes[0] / n, nodeTimes[1] / n);
+		nodes = null;
+
+		before = usedMemory();
+		PooledBST<Integer> pooled = new PooledBST<>();
+		for (Integer k : keys)
+			pooled.add(k);
+		long pooledBytes = usedMemory() - before;
+		long[] pooledTimes = descents(pooled::contains, pooled::floor, keys);
+		System.out.printf("%-10s %14d %12d %12d%n", "PooledBST", pooledBytes / pooled.size(),
+				pooledTimes[0] / n, pooledTimes[1] / n);
+	}
+
+	/**
+	 * Fills an OffHeapBST with long keys and reports the heap used before
+	 * and after, and the time of contains.
+	 *
+	 * @param n number of keys
+	 */
+	static void offHeap(int n) {
+		Random random = new Random(42);
+		System.out.println("off heap long keys, n = " + n);
+		long before = usedMemory();
+		try (OffHeapBST<Long> tree = new OffHeapBST<>(KeyLayout.LONG)) {
+			for (int i = 0; i < n; i++) {
+				tree.add(random.nextLong());
+			}
+			long heap = usedMemory() - before;
+			long time = 0;
+			for (int round = 0; round < ROUNDS; round++) {
+				random = new Random(42);
+				int hits = 0;
+				long start = System.nanoTime();
+				for (int i = 0; i < n; i++) {
+					if (tree.contains(random.nextLong()))
+						hits++;
+				}
+				time = System.nanoTime() - start;
+				sink += hits;
+			}
+			System.out.printf("heap growth %d bytes, %d bytes/element, contains %d ns%n",
+					heap, heap / n, time / n);
+		}
+	}
+
+	/**
+	 * Compares building a tree from unsorted keys by sorting and calling
+	 * sortedArrToBST on one thread with the parallel bulk load constructor.
+	 *
+	 * @param n number of keys
+	 */
+	static void bulkLoad(int n) {
+		Integer[] keys = new Integer[n];
+		Random random = new Random(42);
+		for (int i = 0; i < n; i++) {
+			keys[i] = random.nextInt();
+		}
+		System.out.println("bulk load, n = " + n + ", " + Runtime.getRuntime().availableProcessors() + " cores (ms)");
+		long sequential = 0;
+		long parallel = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			Integer[] copy = keys.clone();
+			Arrays.sort(copy);
+			BST<Integer> tree = new BST<>();
+			tree.root = tree.sortedArrToBST(copy, 0, copy.length - 1);
+			sequential = System.nanoTime() - start;
+			sink += tree.size();
+
+			start = System.nanoTime();
+			tree = new BST<>(keys);
+			parallel = System.nanoTime() - start;
+			sink += tree.size();
+		}
+		System.out.printf("sequential %d, parallel %d%n", sequential / 1_000_000, parallel / 1_000_000);
+	}
+
+	/**
+	 * Sums the elements of a tree with a sequential and with a parallel stream.
+	 *
+	 * @param n number of elements
+	 */
+	static void streams(int n) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		BST<Integer> tree = new BST<>(keys, true);
+		System.out.println("stream sum, n = " + n + ", " + Runtime.getRuntime().availableProcessors() + " cores (ms)");
+		long sequential = 0;
+		long parallel = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			sink += tree.stream().mapToLong(Integer::longValue).sum();
+			sequential = System.nanoTime() - start;
+			start = System.nanoTime();
+			sink += tree.parallelStream().mapToLong(Integer::longValue).sum();
+			parallel = System.nanoTime() - start;
+		}
+		System.out.printf("sequential %d, parallel %d%n", sequential / 1_000_000, parallel / 1_000_000);
+	}
+
+	/**
+	 * Compares a full scan through the iterator with the internal forEach.
+	 *
+	 * @param n number of elements
+	 */
+	static void scan(int n) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		BST<Integer> tree = new BST<>(keys, true);
+		System.out.println("full scan, n = " + n + " (ns per element)");
+		long iterator = 0;
+		long forEach = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long sum = 0;
+			long start = System.nanoTime();
+			for (Integer k : tree) {
+				sum += k;
+			}
+			iterator = System.nanoTime() - start;
+			long[] total = new long[1];
+			start = System.nanoTime();
+			tree.forEach(k -> total[0] += k);
+			forEach = System.nanoTime() - start;
+			sink += sum + total[0];
+		}
+		System.out.printf("iterator %.1f, forEach %.1f%n", iterator / (double) n, forEach / (double) n);
+	}
+
+	/**
+	 * Reads pages of consecutive elements starting at random keys, once with
+	 * a ceiling followed by repeated higher calls and once with a cursor.
+	 *
+	 * @param n number of elements
+	 * @param queries number of pages
+	 * @param page number of elements per page
+	 */
+	static void pages(int n, int queries, int page) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = 2 * i;
+		}
+		BST<Integer> tree = new BST<>(keys, true);
+		System.out.println("paginated reads, n = " + n + ", " + page + " elements per page (ns per element)");
+		long descents = 0;
+		long cursor = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			Random random = new Random(42);
+			long sum = 0;
+			long start = System.nanoTime();
+			for (int q = 0; q < queries; q++) {
+				Integer e = tree.ceiling(random.nextInt(2 * n));
+				for (int i = 0; i < page && e != null; i++) {
+					sum += e;
+					e = tree.higher(e);
+				}
+			}
+			descents = System.nanoTime() - start;
+
+			random = new Random(42);
+			start = System.nanoTime();
+			for (int q = 0; q < queries; q++) {
+				BST<Integer>.Cursor c = tree.cursor(random.nextInt(2 * n), true);
+				for (int i = 0; i < page && c.hasNext(); i++) {
+					sum -= c.next();
+				}
+			}
+			cursor = System.nanoTime() - start;
+			sink += sum;
+		}
+		long elements = (long) queries * page;
+		System.out.printf("ceiling+higher %.1f, cursor %.1f%n", descents / (double) elements, cursor / (double) elements);
+	}
+
+	/**
+	 * Counts the elements of random ranges of up to a tenth of the tree, once
+	 * by walking the range with a cursor and once from the subtree sizes.
+	 *
+	 * @param n number of elements
+	 * @param queries number of ranges
+	 */
+	static void rangeCounts(int n, int queries) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		BST<Integer> tree = new BST<>(keys, true);
+		System.out.println("range counts, n = " + n + " (ns per query)");
+		long walk = 0;
+		long sizes = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			Random random = new Random(42);
+			long sum = 0;
+			long start = System.nanoTime();
+			for (int q = 0; q < queries; q++) {
+				int from = random.nextInt(n);
+				int to = from + random.nextInt(n / 10);
+				BST<Integer>.Cursor c = tree.cursor(from, true);
+				while (c.hasNext() && c.next() < to) {
+					sum++;
+				}
+			}
+			walk = System.nanoTime() - start;
+
+			random = new Random(42);
+			start = System.nanoTime();
+			for (int q = 0; q < queries; q++) {
+				int from = random.nextInt(n);
+				int to = from + random.nextInt(n / 10);
+				sum -= tree.subSet(from, true, to, false).size();
+			}
+			sizes = System.nanoTime() - start;
+			sink += sum;
+		}
+		System.out.printf("cursor walk %.1f, subSet size %.1f%n", walk / (double) queries, sizes / (double) queries);
+	}
+
+	/**
+	 * Moves the upper half of a balanced tree to another tree, once by
+	 * removing and adding every element and once with split, and puts the
+	 * halves back together with join.
+	 *
+	 * @param n number of elements
+	 */
+	static void splitJoin(int n) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		System.out.println("split at the median, n = " + n + " (us)");
+		long removes = 0;
+		long split = 0;
+		long join = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			AVLBST<Integer> tree = new AVLBST<>(keys);
+			long start = System.nanoTime();
+			AVLBST<Integer> upper = new AVLBST<>();
+			for (int i = n / 2; i < n; i++) {
+				tree.remove(keys[i]);
+				upper.add(keys[i]);
+			}
+			removes = System.nanoTime() - start;
+
+			tree = new AVLBST<>(keys);
+			start = System.nanoTime();
+			upper = tree.split(n / 2);
+			split = System.nanoTime() - start;
+			start = System.nanoTime();
+			AVLBST<Integer> joined = AVLBST.join(tree, upper);
+			join = System.nanoTime() - start;
+			sink += joined.size();
+		}
+		System.out.printf("remove+add %.1f, split %.1f, join %.1f%n", removes / 1e3, split / 1e3, join / 1e3);
+	}
+
+	/**
+	 * Intersects two trees of random ids, once by looking every element of
+	 * one tree up in the other and bulk loading the matches, and once
+	 * with intersection. Also times union.
+	 *
+	 * @param n number of elements of each tree
+	 */
+	static void setOperations(int n) {
+		Random random = new Random(42);
+		Integer[] first = new Integer[n];
+		Integer[] second = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			first[i] = random.nextInt(4 * n);
+			second[i] = random.nextInt(4 * n);
+		}
+		BST<Integer> a = new BST<>(first);
+		BST<Integer> b = new BST<>(second);
+		System.out.println("set operations, n = " + n + " (ms)");
+		long lookups = 0;
+		long intersection = 0;
+		long union = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			List<Integer> found = new ArrayList<>();
+			for (Integer e : a) {
+				if (b.contains(e))
+					found.add(e);
+			}
+			BST<Integer> common = new BST<>(found);
+			lookups = System.nanoTime() - start;
+			start = System.nanoTime();
+			BST<Integer> merged = a.intersection(b);
+			intersection = System.nanoTime() - start;
+			start = System.nanoTime();
+			BST<Integer> all = a.union(b);
+			union = System.nanoTime() - start;
+			sink += common.size() + merged.size() + all.size();
+		}
+		System.out.printf("contains loop %.1f, intersection %.1f, union %.1f (%d threads)%n",
+				lookups / 1e6, intersection / 1e6, union / 1e6, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Counts the compareTo and equals calls that the lookups and updates of a
+	 * tree of random keys make, per operation. Half of the looked up keys are
+	 * in the tree. A call per visited node is the least a descent can do,
+	 * so the average depth of a node plus one is printed as well.
+	 *
+	 * @param n number of keys
+	 */
+	static void comparisons(int n) {
+		Random random = new Random(42);
+		CountingKey[] keys = new CountingKey[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = new CountingKey(2 * random.nextInt(2 * n));
+		}
+		CountingKey[] probes = new CountingKey[n];
+		for (int i = 0; i < n; i++) {
+			probes[i] = i % 2 == 0 ? keys[random.nextInt(n)] : new CountingKey(2 * random.nextInt(2 * n) + 1);
+		}
+		BST<CountingKey> tree = new BST<>();
+		CountingKey.calls = 0;
+		for (CountingKey k : keys) {
+			tree.add(k);
+		}
+		long add = CountingKey.calls;
+		// every node is counted once in the size of each subtree it belongs to,
+		// so the sizes add up to the sum of the depths plus one
+		long depths = 0;
+		ArrayDeque<BST<CountingKey>.BSTNode> nodes = new ArrayDeque<>();
+		nodes.push(tree.root);
+		while (!nodes.isEmpty()) {
+			BST<CountingKey>.BSTNode node = nodes.pop();
+			depths += node.size;
+			if (node.left != null)
+				nodes.push(node.left);
+			if (node.right != null)
+				nodes.push(node.right);
+		}
+		System.out.println("comparisons per operation, n = " + n + ", random insertion order");
+		System.out.printf("%-8s %.1f%n", "depth+1", depths / (double) tree.size());
+		System.out.printf("%-8s %.1f%n", "add", add / (double) n);
+		String[] names = { "contains", "floor", "ceiling", "higher", "lower" };
+		for (int op = 0; op < names.length; op++) {
+			CountingKey.calls = 0;
+			for (CountingKey p : probes) {
+				switch (op) {
+				case 0: sink += tree.contains(p) ? 1 : 0; break;
+				case 1: sink += tree.floor(p) == null ? 0 : 1; break;
+				case 2: sink += tree.ceiling(p) == null ? 0 : 1; break;
+				case 3: sink += tree.higher(p) == null ? 0 : 1; break;
+				default: sink += tree.lower(p) == null ? 0 : 1; break;
+				}
+			}
+			System.out.printf("%-8s %.1f%n", names[op], CountingKey.calls / (double) n);
+		}
+		CountingKey.calls = 0;
+		for (CountingKey p : probes) {
+			tree.remove(p);
+		}
+		System.out.printf("%-8s %.1f%n", "remove", CountingKey.calls / (double) n);
+	}
+
+	/**
+	 * Looks every key up in trees with the same elements that use the natural
+	 * ordering, Comparator.naturalOrder(), a lambda and a reversed order.
+	 *
+	 * @param n number of keys
+	 */
+	static void orderings(int n) {
+		Integer[] sorted = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			sorted[i] = i;
+		}
+		Integer[] keys = shuffled(sorted, 42);
+		List<Comparator<Integer>> comparators = Arrays.asList(null, Comparator.naturalOrder(),
+				(x, y) -> Integer.compare(x, y), Comparator.reverseOrder());
+		String[] names = { "natural", "naturalOrder()", "lambda", "reverseOrder()" };
+		System.out.println("orderings, n = " + n + " (ns per contains)");
+		for (int i = 0; i < names.length; i++) {
+			BST<Integer> tree = new BST<>(comparators.get(i));
+			for (Integer k : keys) {
+				tree.add(k);
+			}
+			long time = 0;
+			for (int round = 0; round < ROUNDS; round++) {
+				int hits = 0;
+				long start = System.nanoTime();
+				for (Integer k : keys) {
+					if (tree.contains(k))
+						hits++;
+				}
+				time = System.nanoTime() - start;
+				sink += hits;
+			}
+			System.out.printf("%-15s %.1f%n", names[i], time / (double) n);
+		}
+	}
+
+	/**
+	 * Looks random labels up in trees of strings and of rest stops, with and
+	 * without key prefixes in the nodes.
+	 *
+	 * @param n number of labels
+	 */
+	static void prefixes(int n) {
+		Random random = new Random(42);
+		String[] labels = new String[n];
+		RestStop[] stops = new RestStop[n];
+		for (int i = 0; i < n; i++) {
+			char[] label = new char[10 + random.nextInt(7)];
+			for (int j = 0; j < label.length; j++) {
+				label[j] = (char) ('a' + random.nextInt(26));
+			}
+			labels[i] = new String(label);
+			stops[i] = new RestStop(labels[i]);
+		}
+		System.out.println("key prefixes, n = " + n + " (ns per contains)");
+		List<BST<String>> strings = Arrays.asList(new BST<>(), new BST<>(null, KeyPrefix.STRING));
+		List<AVLBST<RestStop>> restStops = Arrays.asList(new AVLBST<>(), new AVLBST<>(null, KeyPrefix.REST_STOP));
+		long[] times = new long[4];
+		for (int i = 0; i < 2; i++) {
+			for (int k = 0; k < n; k++) {
+				strings.get(i).add(labels[k]);
+				restStops.get(i).add(stops[k]);
+			}
+		}
+		for (int round = 0; round < ROUNDS; round++) {
+			for (int i = 0; i < 2; i++) {
+				BST<String> tree = strings.get(i);
+				int hits = 0;
+				long start = System.nanoTime();
+				for (String label : labels) {
+					if (tree.contains(label))
+						hits++;
+				}
+				times[i] = System.nanoTime() - start;
+				AVLBST<RestStop> mountain = restStops.get(i);
+				start = System.nanoTime();
+				for (RestStop stop : stops) {
+					if (mountain.contains(stop))
+						hits++;
+				}
+				times[2 + i] = System.nanoTime() - start;
+				sink += hits;
+			}
+		}
+		System.out.printf("BST<String>        compareTo %.1f, prefix %.1f%n", times[0] / (double) n, times[1] / (double) n);
+		System.out.printf("AVLBST<RestStop>   compareTo %.1f, prefix %.1f%n", times[2] / (double) n, times[3] / (double) n);
+	}
+
+	/**
+	 * Compares two replicas of an index that differ in a few elements and were
+	 * built in different orders, so their shapes differ. Times a merge of
+	 * the two in order traversals, equals, and diff.
+	 *
+	 * @param n number of elements
+	 * @param changes number of elements that differ
+	 */
+	static void replicas(int n, int changes) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = 2 * i;
+		}
+		AVLBST<Integer> primary = new AVLBST<>();
+		for (Integer k : shuffled(keys, 1)) {
+			primary.add(k);
+		}
+		AVLBST<Integer> replica = new AVLBST<>();
+		for (Integer k : shuffled(keys, 2)) {
+			replica.add(k);
+		}
+		Random random = new Random(42);
+		for (int i = 0; i < changes; i++) {
+			replica.remove(keys[random.nextInt(n)]);
+			replica.add(2 * random.nextInt(n) + 1);
+		}
+		System.out.println("replica comparison, n = " + n + ", " + changes + " changes (us)");
+		long walk = 0;
+		long equals = 0;
+		long diff = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			Iterator<Integer> a = primary.iterator();
+			Iterator<Integer> b = replica.iterator();
+			int different = 0;
+			Integer x = a.hasNext() ? a.next() : null;
+			Integer y = b.hasNext() ? b.next() : null;
+			while (x != null || y != null) {
+				int cmp = x == null ? 1 : y == null ? -1 : x.compareTo(y);
+				if (cmp != 0)
+					different++;
+				if (cmp <= 0)
+					x = a.hasNext() ? a.next() : null;
+				if (cmp >= 0)
+					y = b.hasNext() ? b.next() : null;
+			}
+			walk = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			boolean same = primary.equals(replica);
+			equals = System.nanoTime() - start;
+
+			int[] found = new int[1];
+			start = System.nanoTime();
+			primary.diff(replica, e -> found[0]++, e -> found[0]++);
+			diff = System.nanoTime() - start;
+			sink += different + found[0] + (same ? 1 : 0);
+		}
+		System.out.printf("merge walk %.1f, equals %.1f, diff %.1f%n", walk / 1e3, equals / 1e3, diff / 1e3);
+	}
+
+	/**
+	 * Turns a tree into text with toString and toStringTreeFormat, and streams
+	 * the same text with writeTo and writeTreeFormatTo to a buffered writer
+	 * that drops it.
+	 *
+	 * @param n number of elements
+	 */
+	static void dump(int n) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i;
+		}
+		BST<Integer> tree = new BST<>(keys, true);
+		System.out.println("dump, n = " + n + " (ms)");
+		long string = 0;
+		long format = 0;
+		long stream = 0;
+		long streamFormat = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			sink += tree.toString().length();
+			string = System.nanoTime() - start;
+			start = System.nanoTime();
+			sink += tree.toStringTreeFormat().length();
+			format = System.nanoTime() - start;
+			try (Writer out = new BufferedWriter(new OutputStreamWriter(OutputStream.nullOutputStream()), 1 << 16)) {
+				start = System.nanoTime();
+				tree.writeTo(out);
+				stream = System.nanoTime() - start;
+				start = System.nanoTime();
+				tree.writeTreeFormatTo(out, Integer.MAX_VALUE);
+				streamFormat = System.nanoTime() - start;
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+		System.out.printf("toString %.1f, toStringTreeFormat %.1f, writeTo %.1f, writeTreeFormatTo %.1f%n",
+				string / 1e6, format / 1e6, stream / 1e6, streamFormat / 1e6);
+	}
+
+	/**
+	 * Saves a tree to a snapshot file and reloads it, with and without a
+	 * checksum, and compares the reload with adding the elements one by one
+	 * to a balanced tree and with reading the file without decoding it.
+	 *
+	 * @param n number of elements
+	 */
+	static void snapshots(int n) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i * 3;
+		}
+		BST<Integer> tree = new BST<>(keys, true);
+		System.out.println("snapshot, n = " + n + " (ms)");
+		try {
+			Path file = Files.createTempFile("bst", ".snapshot");
+			long save = 0;
+			long saveChecked = 0;
+			long load = 0;
+			long loadChecked = 0;
+			long add = 0;
+			long read = 0;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				tree.save(file, KeyCodec.INT, false);
+				save = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				BST<Integer> loaded = new BST<>();
+				loaded.load(file, KeyCodec.INT);
+				load = System.nanoTime() - start;
+				sink += loaded.size();
+
+				start = System.nanoTime();
+				AVLBST<Integer> added = new AVLBST<>();
+				for (Integer k : keys) {
+					added.add(k);
+				}
+				add = System.nanoTime() - start;
+				sink += added.size();
+
+				start = System.nanoTime();
+				try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+					ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+					while (channel.read(buffer) >= 0) {
+						sink += buffer.position();
+						buffer.clear();
+					}
+				}
+				read = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				tree.save(file, KeyCodec.INT, true);
+				saveChecked = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				loaded = new BST<>();
+				loaded.load(file, KeyCodec.INT);
+				loadChecked = System.nanoTime() - start;
+				sink += loaded.size();
+			}
+			System.out.printf("file %d MB, save %.1f, save with checksum %.1f, load %.1f, load with checksum %.1f%n",
+					Files.size(file) >> 20, save / 1e6, saveChecked / 1e6, load / 1e6, loadChecked / 1e6);
+			System.out.printf("AVLBST.add of every element %.1f, reading the file %.1f%n", add / 1e6, read / 1e6);
+			Files.delete(file);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Measures how many adds per second a DurableBST makes durable when every
+	 * add is synced alone, when concurrent adds share their fsyncs, and when
+	 * the adds are synced in the background after a delay.
+	 */
+	static void durable() {
+		System.out.println("durable adds (thousand per second)");
+		try {
+			System.out.printf("sync every add, 1 thread    %10.1f%n", durableRate(1, 2_000, 0));
+			System.out.printf("sync every add, 16 threads  %10.1f%n", durableRate(16, 50_000, 0));
+			System.out.printf("sync delay 10 ms, 1 thread  %10.1f%n", durableRate(1, 2_000_000, 10));
+			System.out.printf("sync delay 10 ms, 4 threads %10.1f%n", durableRate(4, 2_000_000, 10));
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private static double durableRate(int threads, int ops, long delay) throws IOException {
+		double rate = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			Path directory = Files.createTempDirectory("wal");
+			DurableBST<Integer> tree = new DurableBST<>(directory, KeyCodec.INT, null, delay, 64 << 20);
+			Thread[] workers = new Thread[threads];
+			for (int t = 0; t < threads; t++) {
+				int first = t;
+				workers[t] = new Thread(() -> {
+					try {
+						for (int k = first; k < ops; k += threads) {
+							tree.add(k);
+						}
+					}
+					catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+				});
+			}
+			long start = System.nanoTime();
+			for (Thread worker : workers)
+				worker.start();
+			for (Thread worker : workers) {
+				try {
+					worker.join();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			tree.close(); // the last adds are durable only now
+			rate = ops / ((System.nanoTime() - start) / 1e6);
+			sink += tree.size();
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for (Path file : files) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(directory);
+		}
+		return rate;
+	}
+
+	/**
+	 * Fills a PagedBTree in random order and looks random keys up, with a pool
+	 * that holds the whole tree and with one that holds 1/64 of it, and counts
+	 * the pages read from the file per lookup.
+	 *
+	 * @param n number of keys
+	 * @param queries number of lookups
+	 */
+	static void paged(int n, int queries) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i * 2;
+		}
+		keys = shuffled(keys, 42);
+		System.out.println("paged tree, n = " + n + ", 4 KB pages (ns per operation)");
+		System.out.printf("%-12s %10s %10s %16s%n", "pool", "add", "contains", "reads per lookup");
+		int pages = n / 300; // about 8 bytes per key and leaves two thirds full
+		try {
+			for (int pool : new int[] { pages * 2, pages / 64 }) {
+				double add = 0;
+				double contains = 0;
+				double reads = 0;
+				for (int round = 0; round < ROUNDS; round++) {
+					Path file = Files.createTempFile("paged", ".db");
+					try (PagedBTree<Integer> tree = new PagedBTree<>(file, KeyLayout.INT, 4096, pool)) {
+						long start = System.nanoTime();
+						for (Integer k : keys) {
+							tree.add(k);
+						}
+						add = (System.nanoTime() - start) / (double) n;
+						ThreadLocalRandom random = ThreadLocalRandom.current();
+						long before = tree.pageReads();
+						start = System.nanoTime();
+						for (int q = 0; q < queries; q++) {
+							if (tree.contains(random.nextInt(2 * n)))
+								sink++;
+						}
+						contains = (System.nanoTime() - start) / (double) queries;
+						reads = (tree.pageReads() - before) / (double) queries;
+					}
+					Files.delete(file);
+				}
+				System.out.printf("%-12s %10.0f %10.0f %16.2f%n", pool + " pages", add, contains, reads);
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		AVLBST<Integer> tree = new AVLBST<>();
+		for (Integer k : keys) {
+			tree.add(k);
+		}
+		double contains = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			long start = System.nanoTime();
+			for (int q = 0; q < queries; q++) {
+				if (tree.contains(random.nextInt(2 * n)))
+					sink++;
+			}
+			contains = (System.nanoTime() - start) / (double) queries;
+		}
+		System.out.printf("%-12s %10s %10.0f%n", "AVLBST", "", contains);
+	}
+
+	/**
+	 * Looks random keys up in the trees and in their frozen copies: IntBST
+	 * against FrozenIntBST and AVLBST against FrozenBST, with contains and floor,
+	 * and a FrozenBST that keeps the prefixes of its elements.
+	 *
+	 * @param n number of keys
+	 * @param queries number of lookups
+	 */
+	static void frozen(int n, int queries) {
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i * 2;
+		}
+		Random random = new Random(42);
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = keys[i];
+			keys[i] = keys[j];
+			keys[j] = t;
+		}
+		int[] probes = new int[queries];
+		for (int q = 0; q < queries; q++) {
+			probes[q] = random.nextInt(2 * n);
+		}
+		System.out.println("frozen trees, n = " + n + " (ns per operation)");
+		System.out.printf("%-12s %10s %10s %10s%n", "tree", "freeze ms", "contains", "floor");
+
+		IntBST ints = new IntBST(n);
+		for (int k : keys)
+			ints.add(k);
+		frozenRow("IntBST", 0, ints::contains, ints::floor, probes);
+		long start = System.nanoTime();
+		FrozenIntBST frozenInts = ints.freeze();
+		long freeze = (System.nanoTime() - start) / 1_000_000;
+		ints = null;
+		frozenRow("FrozenIntBST", freeze, frozenInts::contains, frozenInts::floor, probes);
+		frozenInts = null;
+
+		AVLBST<Integer> tree = new AVLBST<>();
+		for (int k : keys)
+			tree.add(k);
+		frozenRow("AVLBST", 0, k -> tree.contains(k), k -> tree.floor(k), probes);
+		start = System.nanoTime();
+		FrozenBST<Integer> frozenTree = tree.freeze();
+		freeze = (System.nanoTime() - start) / 1_000_000;
+		tree.clear();
+		frozenRow("FrozenBST", freeze, k -> frozenTree.contains(k), k -> frozenTree.floor(k), probes);
+
+		// the same elements with their prefixes in the tree, an int shifted to be unsigned
+		AVLBST<Integer> prefixed = new AVLBST<Integer>(null, k -> (long) k - Integer.MIN_VALUE);
+		for (int k : keys)
+			prefixed.add(k);
+		start = System.nanoTime();
+		FrozenBST<Integer> frozenPrefixed = prefixed.freeze();
+		freeze = (System.nanoTime() - start) / 1_000_000;
+		prefixed.clear();
+		frozenRow("+ prefixes", freeze, k -> frozenPrefixed.contains(k), k -> frozenPrefixed.floor(k), probes);
+	}
+
+	private static void frozenRow(String name, long freeze, IntPredicate contains,
+			IntUnaryOperator floor, int[] probes) {
+		double containsTime = 0;
+		double floorTime = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int k : probes) {
+				if (contains.test(k))
+					sink++;
+			}
+			containsTime = (System.nanoTime() - start) / (double) probes.length;
+			start = System.nanoTime();
+			for (int k : probes) {
+				sink += floor.applyAsInt(k);
+			}
+			floorTime = (System.nanoTime() - start) / (double) probes.length;
+		}
+		System.out.printf("%-12s %10s %10.0f %10.0f%n", name, freeze == 0 ? "" : freeze, containsTime, floorTime);
+	}
+
+	/**
+	 * Fills a BST, an AVLBST (the rotations of the mountain) and BTrees of 32
+	 * elements per node, with and without prefixes, in random order, and looks
+	 * random keys up with contains and floor, for growing sizes, to show from
+	 * which size the wide nodes pay off.
+	 *
+	 * @param sizes numbers of keys
+	 * @param queries number of lookups
+	 */
+	static void wideNodes(int[] sizes, int queries) {
+		System.out.println("wide nodes, random keys (ns per operation)");
+		System.out.printf("%-10s %-14s %10s %10s %10s%n", "n", "tree", "add", "contains", "floor");
+		for (int n : sizes) {
+			Integer[] keys = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				keys[i] = i * 2;
+			}
+			keys = shuffled(keys, 42);
+			Integer[] probes = new Integer[queries];
+			Random random = new Random(7);
+			for (int q = 0; q < queries; q++) {
+				probes[q] = random.nextInt(2 * n);
+			}
+			BST<Integer> plain = new BST<>();
+			wideNodesRow(n, "BST", keys, probes, plain::add, plain::contains, plain::floor, plain::clear);
+			plain = null;
+			AVLBST<Integer> avl = new AVLBST<>();
+			wideNodesRow(n, "AVLBST", keys, probes, avl::add, avl::contains, avl::floor, avl::clear);
+			avl = null;
+			BTree<Integer> wide = new BTree<>();
+			wideNodesRow(n, "BTree", keys, probes, wide::add, wide::contains, wide::floor, wide::clear);
+			wide = new BTree<Integer>(32, null, k -> (long) k - Integer.MIN_VALUE);
+			wideNodesRow(n, "+ prefixes", keys, probes, wide::add, wide::contains, wide::floor, wide::clear);
+		}
+	}
+
+	/**
+	 * Times one tree of the wide node benchmark, cleared and filled again in every round.
+	 */
+	private static void wideNodesRow(int n, String name, Integer[] keys, Integer[] probes,
+			Predicate<Integer> add, Predicate<Integer> contains, UnaryOperator<Integer> floor, Runnable clear) {
+		double addTime = 0;
+		double containsTime = 0;
+		double floorTime = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			clear.run();
+			long start = System.nanoTime();
+			for (Integer k : keys) {
+				add.test(k);
+			}
+			addTime = (System.nanoTime() - start) / (double) keys.length;
+			start = System.nanoTime();
+			for (Integer k : probes) {
+				if (contains.test(k))
+					sink++;
+			}
+			containsTime = (System.nanoTime() - start) / (double) probes.length;
+			start = System.nanoTime();
+			for (Integer k : probes) {
+				sink += floor.apply(k);
+			}
+			floorTime = (System.nanoTime() - start) / (double) probes.length;
+		}
+		clear.run();
+		System.out.printf("%-10d %-14s %10.0f %10.0f %10.0f%n", n, name, addTime, containsTime, floorTime);
+	}
+
+	/**
+	 * Compares a SplayBST with an AVLBST holding the same keys under skewed
+	 * lookups: keys drawn from Zipf distributions of growing exponent (0 is
+	 * uniform), and a hot set of 5% of the keys that gets 90% of the lookups.
+	 * The popular keys are spread over the whole key range.
+	 *
+	 * @param n number of keys
+	 * @param queries number of lookups
+	 */
+	static void skewed(int n, int queries) {
+		Integer[] keys = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = i * 2;
+		}
+		keys = shuffled(keys, 42);
+		AVLBST<Integer> balanced = new AVLBST<>();
+		SplayBST<Integer> splay = new SplayBST<>();
+		for (Integer k : keys) {
+			balanced.add(k);
+			splay.add(k);
+		}
+		// the popularity of a key does not depend on when it was added
+		keys = shuffled(keys, 43);
+		System.out.println("skewed lookups, n = " + n + " (ns per operation)");
+		System.out.printf("%-12s %10s %10s %10s %10s%n", "workload", "AVL cont", "splay cont", "AVL floor", "splay floor");
+		Random random = new Random(7);
+		for (double exponent : new double[] { 0, 0.8, 1.0, 1.2 }) {
+			// cumulative weights of the ranks, the key of rank i is keys[i]
+			double[] cumulative = new double[n];
+			double total = 0;
+			for (int i = 0; i < n; i++) {
+				total += Math.pow(i + 1, -exponent);
+				cumulative[i] = total;
+			}
+			Integer[] probes = new Integer[queries];
+			for (int q = 0; q < queries; q++) {
+				int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+				probes[q] = keys[Math.min(rank < 0 ? -rank - 1 : rank, n - 1)];
+			}
+			skewedRow("zipf " + exponent, balanced, splay, probes);
+		}
+		Integer[] probes = new Integer[queries];
+		int hot = n / 20;
+		for (int q = 0; q < queries; q++) {
+			probes[q] = keys[random.nextInt(10) < 9 ? random.nextInt(hot) : hot + random.nextInt(n - hot)];
+		}
+		skewedRow("5% get 90%", balanced, splay, probes);
+	}
+
+	private static void skewedRow(String name, AVLBST<Integer> balanced, SplayBST<Integer> splay, Integer[] probes) {
+		double[] times = new double[4];
+		for (int round = 0; round < ROUNDS; round++) {
+			int i = 0;
+			for (BST<Integer> tree : Arrays.asList(balanced, splay)) {
+				long start = System.nanoTime();
+				for (Integer k : probes) {
+					if (tree.contains(k))
+						sink++;
+				}
+				times[i] = (System.nanoTime() - start) / (double) probes.length;
+				// the keys are even, floor of the odd key above finds the key itself
+				start = System.nanoTime();
+				for (Integer k : probes) {
+					sink += tree.floor(k + 1);
+				}
+				times[i + 2] = (System.nanoTime() - start) / (double) probes.length;
+				i++;
+			}
+		}
+		System.out.printf("%-12s %10.0f %10.0f %10.0f %10.0f%n", name, times[0], times[1], times[2], times[3]);
+	}
+
+	/**
+	 * Integer key that counts how often it is compared.
+	 */
+	private static final class CountingKey implements Comparable<CountingKey> {
+
+		static long calls;
+
+		private final int value;
+
+		CountingKey(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public int compareTo(CountingKey other) {
+			calls++;
+			return Integer.compare(value, other.value);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			calls++;
+			return other instanceof CountingKey && ((CountingKey) other).value == value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value;
+		}
+	}
+
+	/**
+	 * Times looking up every key with contains and with floor, and returns
+	 * the nanoseconds of the last round of each.
+	 */
+	private static long[] descents(Predicate<Integer> contains, UnaryOperator<Integer> floor, Integer[] keys) {
+		long[] times = new long[2];
+		for (int round = 0; round < ROUNDS; round++) {
+			int hits = 0;
+			long start = System.nanoTime();
+			for (Integer k : keys) {
+				if (contains.test(k))
+					hits++;
+			}
+			times[0] = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (Integer k : keys) {
+				if (floor.apply(k) != null)
+					hits++;
+			}
+			times[1] = System.nanoTime() - start;
+			sink += hits;
+		}
+		return times;
+	}
+
+	/**
+	 * Returns the heap in use after asking for a garbage collection.
+	 */
+	static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Returns a shuffled copy of the array.
+	 */
+	static Integer[] shuffled(Integer[] keys, long seed) {
+		Integer[] copy = keys.clone();
+		Random random = new Random(seed);
+		for (int i = copy.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			Integer t = copy[i];
+			copy[i] = copy[j];
+			copy[j] = t;
+		}
+		return copy;
+	}
+
+	// keeps the results alive so the lookups are not optimized away
+	static long sink;
+}
@@ -121,9 +121,11 @@ public class BSTMountain extends BST <RestStop> {
 	}
 
 	/**
-	 * Constructs empty mountain.
+	 * Constructs empty mountain. Its nodes keep a prefix of their labels,
+	 * so most comparisons do not read the labels.
 	 */
 	public BSTMountain () {
+		super(null, KeyPrefix.REST_STOP);
 		root = null;
 	}
 
@@ -171,12 +173,14 @@ public class BSTMountain extends BST <RestStop> {
 			data.setLevel(0); // set the level of data to 0
 			return true; // data successfully added to mountain
 		}
+		// Compare data with the root only once
+		int cmp = data.compareTo(root);
 		// Mountain is not empty and data is already in the mountain
-		else if (data.compareTo(root)==0) {
+		if (cmp==0) {
 			return false; // data not added to the mountain
 		}
 		// If data is less than the root
-		else if (data.compareTo(root) < 0) {
+		else if (cmp < 0) {
 			// And root does not have a left child
 			if (root.left == null) {
 				root.left = data; // left point root to data
@@ -231,7 +235,7 @@ public class BSTMountain extends BST <RestStop> {
 			}
 		}
 		// If data is larger than root
-		else if (data.compareTo(root) > 0) {
+		else {
 			// And if the mountain is empty
 			if (root.right == null) {
 				root.right = data; // make data the root of the mountain
@@ -0,0 +1,675 @@
+package project4;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents an ordered set of generic type kept in memory as a
+ * B+-tree: a node holds up to a few dozen elements in one array, so a lookup
+ * visits about log(N)/log(32) nodes instead of log2(N) BSTNodes, and the
+ * references it compares within a node are next to each other in memory.
+ * The public operations are the same as the ones of BST: add, remove,
+ * contains, floor, ceiling, higher, lower, first, last and iteration.
+ *
+ * The elements are in the leaves, which are linked in both directions, and
+ * the inner nodes hold separators: every element of the child at index i + 1
+ * is greater than or equal to the separator at index i, every element of the
+ * child at index i is less than it. A node is searched by binary search.
+ * Every node but the root is at least half full: a node that overflows is
+ * split in two, and a node that falls below half takes an element from a
+ * sibling or is merged with it.
+ *
+ * Like BST, the tree can keep the prefix of every element (see KeyPrefix),
+ * in a long array next to the elements of the node. A search then reads an
+ * element only when its prefix is equal to the one searched for, and a node
+ * is searched without leaving its two arrays.
+ *
+ * @param <E>
+ */
+public class BTree<E extends Comparable<E>> implements Iterable<E> {
+
+	private static final int DEFAULT_NODE_CAPACITY = 32;
+	private static final int MAX_HEIGHT = 64;
+
+	private final int capacity; //maximum number of elements, or separators, in a node
+	private final int minimum; //minimum number in a node other than the root
+	protected Comparator<E> comparator; //comparator object to overwrite the
+	//natural ordering of the elements
+	protected KeyPrefix<? super E> keyPrefix; //null if the nodes do not keep prefixes
+
+	private Node root;
+	private int height; //number of inner levels above the leaves
+	private int size;
+
+	// the inner nodes and child indices on the path of the last add or remove
+	private final Node[] path = new Node[MAX_HEIGHT];
+	private final int[] pathIndex = new int[MAX_HEIGHT];
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the natural ordering of its elements.
+	 */
+	public BTree() {
+		this(DEFAULT_NODE_CAPACITY, null, null);
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator.
+	 */
+	public BTree(Comparator<E> comparator) {
+		this(DEFAULT_NODE_CAPACITY, comparator, null);
+	}
+
+	/**
+	 * Constructs a new, empty tree with nodes of the given capacity, sorted
+	 * according to the specified comparator, that keeps the prefix of every
+	 * element if keyPrefix is not null.
+	 *
+	 * @param capacity maximum number of elements in a node, 16 to 64 suits most trees
+	 * @param comparator ordering of the elements, null for the natural ordering
+	 * @param keyPrefix the prefix of the elements, it has to agree with the ordering; may be null
+	 * @throws IllegalArgumentException if the capacity is less than 4
+	 */
+	public BTree(int capacity, Comparator<E> comparator, KeyPrefix<? super E> keyPrefix)
+			throws IllegalArgumentException {
+		if (capacity < 4) {
+			throw new IllegalArgumentException("A node has to hold at least 4 elements.");
+		}
+		this.capacity = capacity;
+		this.minimum = capacity / 2;
+		this.comparator = comparator;
+		this.keyPrefix = keyPrefix;
+		this.root = newLeaf();
+	}
+
+	/**
+	 * @return the number of elements in this tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this tree contains no elements
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the number of nodes on a path from the root to a leaf
+	 */
+	public int height() {
+		return height + 1;
+	}
+
+	/**
+	 * Removes all the elements from this tree.
+	 */
+	public void clear() {
+		Arrays.fill(path, null);
+		root = newLeaf();
+		height = 0;
+		size = 0;
+	}
+
+	/**
+	 * Adds the specified element to this tree if it is not already present.
+	 * If this tree already contains the element, the call leaves the
+	 * tree unchanged and returns false.
+	 *
+	 * @param e element to be added to this tree
+	 * @return true if this tree did not already contain the specified element
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public boolean add(E e) throws NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Null values cannot be added to the tree.");
+		}
+		long prefix = prefixOf(e);
+		Node leaf = descend(e, prefix);
+		int i = search(leaf, e, prefix);
+		if (i >= 0) {
+			return false;
+		}
+		insert(leaf, -i - 1, e, prefix, null);
+		size++;
+		// split the nodes that overflow, from the leaf up
+		Node node = leaf;
+		for (int level = height - 1; node.count > capacity; level--) {
+			Node right = node.children == null ? splitLeaf(node) : splitInner(node);
+			// the separator was left past the end of the node by the split
+			Object separator = node.keys[node.count];
+			long separatorPrefix = node.prefixes == null ? 0 : node.prefixes[node.count];
+			node.keys[node.count] = null;
+			if (level < 0) {
+				Node top = newInner();
+				top.children[0] = node;
+				insert(top, 0, separator, separatorPrefix, right);
+				root = top;
+				height++;
+				break;
+			}
+			node = path[level];
+			insert(node, pathIndex[level], separator, separatorPrefix, right);
+		}
+		return true;
+	}
+
+	/**
+	 * Removes the specified element from this tree if it is present.
+	 *
+	 * @param o object to be removed from this tree
+	 * @return true if there was an element equal to the object, false otherwise
+	 * @throws NullPointerException if the object is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("Cannot remove a null element from the tree.");
+		}
+		E e = (E) o;
+		long prefix = prefixOf(e);
+		Node leaf = descend(e, prefix);
+		int i = search(leaf, e, prefix);
+		if (i < 0) {
+			return false;
+		}
+		delete(leaf, i);
+		size--;
+		// fill the nodes that fall below the minimum, from the leaf up
+		Node node = leaf;
+		for (int level = height - 1; level >= 0 && node.count < minimum; level--) {
+			node = refill(path[level], pathIndex[level]);
+		}
+		if (root.count == 0 && root.children != null) {
+			root = root.children[0];
+			height--;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if this tree contains the specified element.
+	 *
+	 * @param o object to be checked in the tree
+	 * @return true if the tree contains the object
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the specified object cannot be compared with the elements currently in the tree
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("The tree does not contain null elements.");
+		}
+		E e = (E) o;
+		long prefix = prefixOf(e);
+		return search(findLeaf(e, prefix), e, prefix) >= 0;
+	}
+
+	/**
+	 * Returns the least element greater than or equal to e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E ceiling(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the ceiling for null value.");
+		}
+		return above(e, true);
+	}
+
+	/**
+	 * Returns the least element strictly greater than e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E higher(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the least higher element for null value.");
+		}
+		return above(e, false);
+	}
+
+	/**
+	 * Returns the greatest element less than or equal to e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E floor(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the floor for null value.");
+		}
+		return below(e, true);
+	}
+
+	/**
+	 * Returns the greatest element strictly less than e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E lower(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the closest lower element for null value.");
+		}
+		return below(e, false);
+	}
+
+	/**
+	 * Finds the leaf where e belongs, the answer is there or at the start of
+	 * the next leaf: every element of the next leaf is greater than e.
+	 */
+	private E above(E e, boolean inclusive) {
+		long prefix = prefixOf(e);
+		Node leaf = findLeaf(e, prefix);
+		int i = search(leaf, e, prefix);
+		i = i >= 0 ? (inclusive ? i : i + 1) : -i - 1;
+		if (i == leaf.count) {
+			leaf = leaf.next;
+			i = 0;
+		}
+		return leaf == null ? null : element(leaf, i);
+	}
+
+	/**
+	 * Finds the leaf where e belongs, the answer is there or at the end of
+	 * the previous leaf: every element of the previous leaf is less than e.
+	 */
+	private E below(E e, boolean inclusive) {
+		long prefix = prefixOf(e);
+		Node leaf = findLeaf(e, prefix);
+		int i = search(leaf, e, prefix);
+		i = i >= 0 ? (inclusive ? i : i - 1) : -i - 2;
+		if (i < 0) {
+			leaf = leaf.previous;
+			if (leaf == null)
+				return null;
+			i = leaf.count - 1;
+		}
+		return element(leaf, i);
+	}
+
+	/**
+	 * Returns the first (lowest) element currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E first() throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("The tree is empty, no first element available.");
+		}
+		return element(edge(false), 0);
+	}
+
+	/**
+	 * Returns the last (highest) element currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E last() throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("The tree is empty, no last value available.");
+		}
+		Node leaf = edge(true);
+		return element(leaf, leaf.count - 1);
+	}
+
+	/**
+	 * @return an iterator over the elements in this tree in ascending order
+	 */
+	public Iterator<E> iterator() {
+		return new LeafIterator();
+	}
+
+	/**
+	 * Returns the elements in ascending order enclosed in square brackets [].
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (E e : this) {
+			if (sb.length() > 1)
+				sb.append(", ");
+			sb.append(e);
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Goes down from the root to the leaf where e belongs. The lookups only
+	 * read the nodes, they write nothing to the tree.
+	 *
+	 * @return the leaf
+	 */
+	private Node findLeaf(E e, long prefix) {
+		Node node = root;
+		for (int level = 0; level < height; level++) {
+			int i = search(node, e, prefix);
+			// an element equal to the separator i is in the child after it
+			node = node.children[i >= 0 ? i + 1 : -i - 1];
+		}
+		return node;
+	}
+
+	/**
+	 * Goes down from the root to the leaf where e belongs, like findLeaf, and
+	 * records the inner nodes and the children taken in path and pathIndex
+	 * for the splits or merges of add and remove.
+	 *
+	 * @return the leaf
+	 */
+	private Node descend(E e, long prefix) {
+		Node node = root;
+		for (int level = 0; level < height; level++) {
+			int i = search(node, e, prefix);
+			// an element equal to the separator i is in the child after it
+			i = i >= 0 ? i + 1 : -i - 1;
+			path[level] = node;
+			pathIndex[level] = i;
+			node = node.children[i];
+		}
+		return node;
+	}
+
+	/**
+	 * @return the first leaf, or the last one
+	 */
+	private Node edge(boolean last) {
+		Node node = root;
+		while (node.children != null) {
+			node = node.children[last ? node.count : 0];
+		}
+		return node;
+	}
+
+	/**
+	 * Binary search of e among the elements (or separators) of a node,
+	 * comparing their prefixes first.
+	 *
+	 * @return the index of e if it is there, otherwise (-(insertion point) - 1)
+	 */
+	private int search(Node node, E e, long prefix) {
+		int low = 0;
+		int high = node.count - 1;
+		long[] prefixes = node.prefixes;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp;
+			if (prefixes != null && prefix != prefixes[mid])
+				cmp = Long.compareUnsigned(prefix, prefixes[mid]);
+			else
+				cmp = compare(e, element(node, mid));
+			if (cmp > 0)
+				low = mid + 1;
+			else if (cmp < 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Inserts an element (or a separator and the child on its right) at index i.
+	 * The arrays have room for one more than the capacity, the caller splits
+	 * the node if it is then over capacity.
+	 */
+	private void insert(Node node, int i, Object key, long prefix, Node right) {
+		int move = node.count - i;
+		System.arraycopy(node.keys, i, node.keys, i + 1, move);
+		node.keys[i] = key;
+		if (node.prefixes != null) {
+			System.arraycopy(node.prefixes, i, node.prefixes, i + 1, move);
+			node.prefixes[i] = prefix;
+		}
+		if (node.children != null) {
+			System.arraycopy(node.children, i + 1, node.children, i + 2, move);
+			node.children[i + 1] = right;
+		}
+		node.count++;
+	}
+
+	/**
+	 * Deletes the element (or the separator and the child on its right) at index i.
+	 */
+	private void delete(Node node, int i) {
+		int move = node.count - i - 1;
+		System.arraycopy(node.keys, i + 1, node.keys, i, move);
+		if (node.prefixes != null)
+			System.arraycopy(node.prefixes, i + 1, node.prefixes, i, move);
+		if (node.children != null) {
+			System.arraycopy(node.children, i + 2, node.children, i + 1, move);
+			node.children[node.count] = null;
+		}
+		node.count--;
+		node.keys[node.count] = null;
+	}
+
+	/**
+	 * Moves the upper half of a full leaf to a new leaf on its right. A copy
+	 * of the first element of the new leaf is left at index count of the
+	 * old one, as the separator for the parent.
+	 *
+	 * @return the new leaf
+	 */
+	private Node splitLeaf(Node leaf) {
+		Node right = newLeaf();
+		int keep = leaf.count / 2;
+		copy(leaf, keep, right, 0, leaf.count - keep);
+		right.count = leaf.count - keep;
+		Arrays.fill(leaf.keys, keep + 1, leaf.count, null);
+		leaf.count = keep;
+		leaf.keys[keep] = right.keys[0];
+		if (leaf.prefixes != null)
+			leaf.prefixes[keep] = right.prefixes[0];
+		right.next = leaf.next;
+		right.previous = leaf;
+		if (leaf.next != null)
+			leaf.next.previous = right;
+		leaf.next = right;
+		return right;
+	}
+
+	/**
+	 * Moves the separators and children after the middle separator of a full
+	 * inner node to a new node on its right. The middle separator moves up to
+	 * the parent, it is left at index count of the old node.
+	 *
+	 * @return the new node
+	 */
+	private Node splitInner(Node node) {
+		Node right = newInner();
+		int middle = node.count / 2;
+		int moved = node.count - middle - 1;
+		copy(node, middle + 1, right, 0, moved);
+		System.arraycopy(node.children, middle + 1, right.children, 0, moved + 1);
+		right.count = moved;
+		Arrays.fill(node.keys, middle + 1, node.count, null);
+		Arrays.fill(node.children, middle + 1, node.count + 1, null);
+		node.count = middle;
+		return right;
+	}
+
+	/**
+	 * Brings the child at index i of a node back to the minimum, by taking
+	 * an element from a sibling that has more than the minimum, or else by
+	 * merging it with a sibling.
+	 *
+	 * @return the parent, which has one child less if they were merged
+	 */
+	private Node refill(Node parent, int i) {
+		Node child = parent.children[i];
+		Node left = i > 0 ? parent.children[i - 1] : null;
+		Node right = i < parent.count ? parent.children[i + 1] : null;
+		if (left != null && left.count > minimum) {
+			shiftRight(parent, i - 1, left, child);
+		}
+		else if (right != null && right.count > minimum) {
+			shiftLeft(parent, i, child, right);
+		}
+		else if (left != null) {
+			merge(parent, i - 1, left, child);
+		}
+		else {
+			merge(parent, i, child, right);
+		}
+		return parent;
+	}
+
+	/**
+	 * Moves the last element of left to the front of right, through the
+	 * separator s of the parent for inner nodes.
+	 */
+	private void shiftRight(Node parent, int s, Node left, Node right) {
+		int last = left.count - 1;
+		if (right.children == null) {
+			insert(right, 0, left.keys[last], prefixAt(left, last), null);
+			delete(left, last);
+			setKey(parent, s, right, 0);
+		}
+		else {
+			Node child = left.children[left.count];
+			insert(right, 0, parent.keys[s], prefixAt(parent, s), null);
+			// insert put the child after the separator, it belongs before it
+			right.children[1] = right.children[0];
+			right.children[0] = child;
+			setKey(parent, s, left, last);
+			delete(left, last);
+		}
+	}
+
+	/**
+	 * Moves the first element of right to the end of left, through the
+	 * separator s of the parent for inner nodes.
+	 */
+	private void shiftLeft(Node parent, int s, Node left, Node right) {
+		if (left.children == null) {
+			insert(left, left.count, right.keys[0], prefixAt(right, 0), null);
+			delete(right, 0);
+			setKey(parent, s, right, 0);
+		}
+		else {
+			insert(left, left.count, parent.keys[s], prefixAt(parent, s), right.children[0]);
+			setKey(parent, s, right, 0);
+			// drop the first separator and the first child of right
+			right.children[0] = right.children[1];
+			delete(right, 0);
+		}
+	}
+
+	/**
+	 * Appends right to left, with the separator s of the parent between them
+	 * for inner nodes, and removes the separator and right from the parent.
+	 */
+	private void merge(Node parent, int s, Node left, Node right) {
+		if (left.children == null) {
+			copy(right, 0, left, left.count, right.count);
+			left.count += right.count;
+			left.next = right.next;
+			if (right.next != null)
+				right.next.previous = left;
+		}
+		else {
+			insert(left, left.count, parent.keys[s], prefixAt(parent, s), right.children[0]);
+			copy(right, 0, left, left.count, right.count);
+			System.arraycopy(right.children, 1, left.children, left.count + 1, right.count);
+			left.count += right.count;
+		}
+		delete(parent, s);
+	}
+
+	/**
+	 * Copies n elements, and their prefixes, from one node to another.
+	 */
+	private void copy(Node from, int i, Node to, int j, int n) {
+		System.arraycopy(from.keys, i, to.keys, j, n);
+		if (from.prefixes != null)
+			System.arraycopy(from.prefixes, i, to.prefixes, j, n);
+	}
+
+	/**
+	 * Sets the element at index i of a node to the one at index j of another.
+	 */
+	private void setKey(Node node, int i, Node from, int j) {
+		node.keys[i] = from.keys[j];
+		if (node.prefixes != null)
+			node.prefixes[i] = from.prefixes[j];
+	}
+
+	private long prefixAt(Node node, int i) {
+		return node.prefixes == null ? 0 : node.prefixes[i];
+	}
+
+	private Node newLeaf() {
+		return new Node(capacity + 1, keyPrefix != null, false);
+	}
+
+	private Node newInner() {
+		return new Node(capacity + 1, keyPrefix != null, true);
+	}
+
+	private long prefixOf(E e) {
+		return keyPrefix == null ? 0 : keyPrefix.prefix(e);
+	}
+
+	/**
+	 * Compares two elements with the comparator of this tree, or their
+	 * natural ordering if there is none.
+	 */
+	private int compare(E a, E b) {
+		if (comparator == null)
+			return a.compareTo(b);
+		return comparator.compare(a, b);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E element(Node node, int i) {
+		return (E) node.keys[i];
+	}
+
+	/**
+	 * This class represents a node of the tree. A leaf has no children and is
+	 * linked to its neighbours, an inner node has count + 1 children.
+	 * Every array has one slot more than the capacity, for the element that
+	 * makes the node overflow before it is split.
+	 */
+	private static final class Node {
+		final Object[] keys;
+		final long[] prefixes; //null if the tree does not keep prefixes
+		final Node[] children; //null for a leaf
+		int count;
+		Node next; //leaves only
+		Node previous;
+
+		Node(int slots, boolean prefixed, boolean inner) {
+			this.keys = new Object[slots];
+			this.prefixes = prefixed ? new long[slots] : null;
+			this.children = inner ? new Node[slots + 1] : null;
+		}
+	}
+
+	/**
+	 * This class represents an iterator that walks the linked leaves.
+	 */
+	private class LeafIterator implements Iterator<E> {
+
+		private Node leaf = size == 0 ? null : edge(false);
+		private int index;
+
+		public boolean hasNext() {
+			return leaf != null;
+		}
+
+		public E next() {
+			if (leaf == null) {
+				throw new NoSuchElementException("No more elements in the tree.");
+			}
+			E e = element(leaf, index++);
+			if (index == leaf.count) {
+				leaf = leaf.next;
+				index = 0;
+			}
+			return e;
+		}
+	}
+}
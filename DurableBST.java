@@ -0,0 +1,662 @@
+package project4;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * This class represents a balanced Binary Search Tree whose changes survive a
+ * crash. Every add, remove and clear that changes the tree is appended as a
+ * small record (one byte for the operation and the element encoded by a
+ * KeyCodec) to a write-ahead log in a directory, and the tree is rebuilt from
+ * that directory when it is opened again.
+ *
+ * Records are not written one by one. They are collected in a buffer, and the
+ * thread that syncs writes everything collected so far as one frame (its
+ * length, a CRC32C and the records) with a single write and a single fsync.
+ * With a sync delay of 0 every change returns once it is on the disk, and the
+ * threads that change the tree at the same time share their fsyncs (group
+ * commit). With a positive delay the changes return at once and a background
+ * thread syncs at most delay milliseconds later, or earlier once a megabyte
+ * of records is waiting: a crash loses at most the last delay milliseconds.
+ *
+ * The log is split into segments of a given size. checkpoint() saves a
+ * snapshot file of the tree (see BST.save) and deletes the segments and the
+ * snapshots it covers. Opening the directory loads the latest snapshot and
+ * replays the segments written after it; a frame that a crash cut short at
+ * the end of the log is dropped, its changes had not been reported as durable.
+ *
+ * All the methods can be called from any number of threads.
+ *
+ * @param <E>
+ */
+public class DurableBST<E extends Comparable<E>> implements Iterable<E>, Closeable {
+
+	private static final byte ADD = 1; //record types
+	private static final byte REMOVE = 2;
+	private static final byte CLEAR = 3;
+	private static final int FRAME = 8; //length and CRC32C in front of the records of a frame
+	private static final int BATCH = 1 << 20; //bytes of records that are synced without waiting for the delay
+	private static final long DEFAULT_SEGMENT = 64 << 20;
+
+	private final Path directory;
+	private final KeyCodec<E> codec;
+	private final AVLBST<E> tree;
+	private final long segmentBytes;
+	private final ScheduledExecutorService flusher; //null if every change is synced before it returns
+
+	private final Object syncLock = new Object(); //held by the thread that writes the log, taken before this
+	private final Object checkpointLock = new Object();
+
+	private ByteBuffer pending = ByteBuffer.allocateDirect(BATCH); //records not written yet, guarded by this
+	private long appended; //bytes of records appended since the tree was opened, guarded by this
+	private boolean closed; //guarded by this
+	private ByteBuffer spare = ByteBuffer.allocateDirect(BATCH); //next buffer of records, guarded by syncLock
+	private final ByteBuffer header = ByteBuffer.allocate(FRAME); //guarded by syncLock
+	private FileChannel segment; //segment that is written, guarded by syncLock
+	private long segmentNumber; //guarded by syncLock
+	private volatile long durable; //bytes of records on the disk
+	private volatile IOException failure; //first error of the log, the tree cannot be changed after it
+
+	/**
+	 * Opens the tree kept in the given directory, sorted according to the natural
+	 * ordering of its elements. Every change is synced before it returns and the
+	 * segments of the log are 64 MB.
+	 *
+	 * @param directory directory of the log and the snapshots, created if it does not exist
+	 * @param codec encoding of the elements
+	 * @throws IOException if the directory cannot be read or its log is corrupt
+	 * @throws NullPointerException if the directory or the codec is null
+	 */
+	public DurableBST (Path directory, KeyCodec<E> codec) throws IOException, NullPointerException {
+		this(directory, codec, null, 0, DEFAULT_SEGMENT);
+	}
+
+	/**
+	 * Opens the tree kept in the given directory: loads its latest snapshot
+	 * and replays the log written after it.
+	 *
+	 * @param directory directory of the log and the snapshots, created if it does not exist
+	 * @param codec encoding of the elements
+	 * @param comparator ordering of the elements, null for the natural ordering;
+	 *  it has to be the one the directory was written with
+	 * @param syncDelay milliseconds a change may wait for its fsync, 0 to sync every change before it returns
+	 * @param segmentBytes size after which the log goes on in a new segment
+	 * @throws IOException if the directory cannot be read or its log is corrupt
+	 * @throws NullPointerException if the directory or the codec is null
+	 * @throws IllegalArgumentException if the delay is negative or the segment size is not positive
+	 */
+	public DurableBST (Path directory, KeyCodec<E> codec, Comparator<E> comparator, long syncDelay, long segmentBytes)
+			throws IOException, NullPointerException, IllegalArgumentException {
+		if (directory == null || codec == null) {
+			throw new NullPointerException("Cannot open a null directory or use a null codec.");
+		}
+		if (syncDelay < 0 || segmentBytes <= 0) {
+			throw new IllegalArgumentException("The sync delay cannot be negative and the segments have to be larger than 0.");
+		}
+		this.directory = directory;
+		this.codec = codec;
+		this.tree = new AVLBST<>(comparator);
+		this.segmentBytes = segmentBytes;
+		recover();
+		if (syncDelay > 0) {
+			flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+				Thread thread = new Thread(task, "DurableBST flusher " + directory);
+				thread.setDaemon(true);
+				return thread;
+			});
+			flusher.scheduleWithFixedDelay(this::syncInBackground, syncDelay, syncDelay, TimeUnit.MILLISECONDS);
+		}
+		else {
+			flusher = null;
+		}
+	}
+
+	/**
+	 * @return the number of elements in this tree
+	 */
+	public synchronized int size() {
+		return tree.size();
+	}
+
+	/**
+	 * @return true if this tree contains no elements
+	 */
+	public synchronized boolean isEmpty() {
+		return tree.isEmpty();
+	}
+
+	/**
+	 * Returns true if this tree contains the specified element.
+	 *
+	 * @param o object to be checked in the tree
+	 * @return true if the tree contains the object
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 */
+	public synchronized boolean contains(Object o) throws NullPointerException, ClassCastException {
+		return tree.contains(o);
+	}
+
+	/**
+	 * Returns the current content of this tree in O(1) as a persistent tree,
+	 * on which all the read operations of BST can be used without a lock.
+	 *
+	 * @return a version of the tree that never changes
+	 */
+	public synchronized PersistentBST<E> snapshot() {
+		return tree.snapshot();
+	}
+
+	/**
+	 * Returns an iterator over the elements the tree has now, in ascending order.
+	 * Later changes do not affect it.
+	 *
+	 * @return an iterator over the elements of a snapshot
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return snapshot().iterator();
+	}
+
+	/**
+	 * Adds the specified element to this tree if it is not already present.
+	 * If the element is added, the call returns once its record is on the
+	 * disk, or with a sync delay once it is in the buffer of the log.
+	 *
+	 * @param data element to be added to this tree
+	 * @return true if this tree did not already contain the specified element
+	 * @throws IOException if the log cannot be written, now or by an earlier sync
+	 * @throws NullPointerException if the specified element is null
+	 * @throws IllegalStateException if the tree is closed
+	 */
+	public boolean add(E data) throws IOException, NullPointerException, IllegalStateException {
+		if (data == null) {
+			throw new NullPointerException("Null values cannot be added to the tree.");
+		}
+		long lsn;
+		synchronized (this) {
+			checkOpen();
+			int start = record(ADD, data);
+			boolean added = false;
+			try {
+				added = tree.add(data);
+			}
+			finally {
+				if (!added) {
+					pending.position(start); // nothing changed, drop the record
+				}
+			}
+			if (!added) {
+				return false;
+			}
+			lsn = appended += pending.position() - start;
+		}
+		commit(lsn);
+		return true;
+	}
+
+	/**
+	 * Removes the specified element from this tree if it is present.
+	 * If the element is removed, the call returns once its record is on the
+	 * disk, or with a sync delay once it is in the buffer of the log.
+	 *
+	 * @param o object to be removed from this tree
+	 * @return true if this tree contained the specified element
+	 * @throws IOException if the log cannot be written, now or by an earlier sync
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 * @throws IllegalStateException if the tree is closed
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object o) throws IOException, NullPointerException, ClassCastException, IllegalStateException {
+		if (o == null) {
+			throw new NullPointerException("Cannot remove null value.");
+		}
+		long lsn;
+		synchronized (this) {
+			checkOpen();
+			int start = record(REMOVE, (E) o);
+			boolean removed = false;
+			try {
+				removed = tree.remove(o);
+			}
+			finally {
+				if (!removed) {
+					pending.position(start);
+				}
+			}
+			if (!removed) {
+				return false;
+			}
+			lsn = appended += pending.position() - start;
+		}
+		commit(lsn);
+		return true;
+	}
+
+	/**
+	 * Removes all the elements from this tree. The call returns once its
+	 * record is on the disk, or with a sync delay once it is in the buffer of the log.
+	 *
+	 * @throws IOException if the log cannot be written, now or by an earlier sync
+	 * @throws IllegalStateException if the tree is closed
+	 */
+	public void clear() throws IOException, IllegalStateException {
+		long lsn;
+		synchronized (this) {
+			checkOpen();
+			if (tree.isEmpty()) {
+				return;
+			}
+			int start = record(CLEAR, null);
+			tree.clear();
+			lsn = appended += pending.position() - start;
+		}
+		commit(lsn);
+	}
+
+	/**
+	 * Writes the records that are still in the buffer to the log and syncs it.
+	 * Once this returns every change made before the call is on the disk.
+	 *
+	 * @throws IOException if the log cannot be written, now or by an earlier sync
+	 */
+	public void sync() throws IOException {
+		long lsn;
+		synchronized (this) {
+			lsn = appended;
+		}
+		sync(lsn);
+	}
+
+	/**
+	 * Saves a snapshot of the tree and deletes the segments of the log and the
+	 * older snapshots it makes unnecessary, so that the next open replays only
+	 * the changes made after it. The tree can be changed while the snapshot is
+	 * written; those changes go to a new segment of the log.
+	 *
+	 * @throws IOException if the log or the snapshot cannot be written
+	 * @throws IllegalStateException if the tree is closed
+	 */
+	public void checkpoint() throws IOException, IllegalStateException {
+		synchronized (checkpointLock) {
+			PersistentBST<E> version;
+			long number;
+			synchronized (syncLock) {
+				synchronized (this) {
+					checkOpen();
+				}
+				version = flush(true);
+				rotate(); // the snapshot covers every segment before this one
+				number = segmentNumber;
+			}
+			version.save(file("snapshot-", number), codec, true);
+			for (long older : numbers("snapshot-")) {
+				if (older < number) {
+					Files.deleteIfExists(file("snapshot-", older));
+				}
+			}
+			for (long older : numbers("log-")) {
+				if (older < number) {
+					Files.deleteIfExists(file("log-", older));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Syncs the log and closes it. Later changes throw IllegalStateException,
+	 * the tree can still be read.
+	 *
+	 * @throws IOException if the last records cannot be written
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		if (flusher != null) {
+			flusher.shutdown();
+		}
+		synchronized (syncLock) {
+			try {
+				if (failure == null) {
+					flush(false);
+				}
+			}
+			finally {
+				segment.close();
+			}
+		}
+	}
+
+	/**
+	 * Returns the elements in the tree in inorder traversal enclosed in square brackets [].
+	 * @return the elements of the tree, like [1, 2, 3]
+	 */
+	@Override
+	public synchronized String toString() {
+		return tree.toString();
+	}
+
+	/**
+	 * Throws if the tree cannot be changed any more.
+	 */
+	private void checkOpen() throws IOException, IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("The tree is closed.");
+		}
+		if (failure != null) {
+			throw new IOException("The log of " + directory + " could not be written.", failure);
+		}
+	}
+
+	/**
+	 * Appends a record to the buffer, which grows if the record does not fit.
+	 * The caller holds the lock of this tree.
+	 *
+	 * @param type operation of the record
+	 * @param data element of the record, null for clear
+	 * @return the position of the record in the buffer
+	 */
+	private int record(byte type, E data) {
+		int start = pending.position();
+		while (true) {
+			try {
+				pending.put(type);
+				if (data != null) {
+					codec.write(data, pending);
+				}
+				return start;
+			}
+			catch (BufferOverflowException ex) {
+				pending.position(start);
+				pending = ByteBuffer.allocateDirect(pending.capacity() * 2).put(pending.flip());
+			}
+			catch (RuntimeException ex) {
+				pending.position(start); // the element cannot be encoded, nothing is logged
+				throw ex;
+			}
+		}
+	}
+
+	/**
+	 * Waits until the record that ends at lsn is on the disk, unless the
+	 * background thread syncs it and a megabyte of records is not waiting yet.
+	 */
+	private void commit(long lsn) throws IOException {
+		if (flusher == null || lsn - durable >= BATCH) {
+			sync(lsn);
+		}
+	}
+
+	/**
+	 * Makes sure the records up to lsn are on the disk. A thread that has to
+	 * wait for another one to finish its fsync often finds its own records
+	 * written by it, otherwise it writes all the records collected meanwhile.
+	 */
+	private void sync(long lsn) throws IOException {
+		synchronized (syncLock) {
+			if (durable >= lsn) {
+				return;
+			}
+			if (failure != null) {
+				throw new IOException("The log of " + directory + " could not be written.", failure);
+			}
+			flush(false);
+		}
+	}
+
+	private void syncInBackground() {
+		try {
+			sync();
+		}
+		catch (IOException ex) {
+			// kept in failure, the next change throws it
+		}
+	}
+
+	/**
+	 * Writes all the records of the buffer as one frame and syncs the segment.
+	 * The caller holds syncLock.
+	 *
+	 * @param snapshot true to also take a snapshot of the tree with exactly the written changes
+	 * @return the snapshot, or null
+	 */
+	private PersistentBST<E> flush(boolean snapshot) throws IOException {
+		ByteBuffer batch;
+		long upTo;
+		PersistentBST<E> version = null;
+		synchronized (this) {
+			batch = pending;
+			pending = spare;
+			upTo = appended;
+			if (snapshot) {
+				version = tree.snapshot();
+			}
+		}
+		try {
+			batch.flip();
+			if (batch.hasRemaining()) {
+				if (segment.position() > 0 && segment.position() + FRAME + batch.remaining() > segmentBytes) {
+					rotate();
+				}
+				CRC32C crc = new CRC32C();
+				crc.update(batch.duplicate());
+				header.clear();
+				header.putInt(batch.remaining()).putInt((int) crc.getValue()).flip();
+				ByteBuffer[] frame = { header, batch };
+				while (header.hasRemaining() || batch.hasRemaining()) {
+					segment.write(frame);
+				}
+				segment.force(false);
+			}
+		}
+		catch (IOException ex) {
+			failure = ex;
+			throw ex;
+		}
+		finally {
+			spare = batch.clear();
+		}
+		durable = upTo;
+		return version;
+	}
+
+	/**
+	 * Closes the current segment, which has been synced, and goes on in a new one.
+	 * The caller holds syncLock.
+	 */
+	private void rotate() throws IOException {
+		segment.close();
+		openSegment(segmentNumber + 1);
+	}
+
+	private void openSegment(long number) throws IOException {
+		segment = FileChannel.open(file("log-", number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		segmentNumber = number;
+		syncDirectory(); // the new file has to be found after a crash
+	}
+
+	/**
+	 * Deletes the temporary files of unfinished snapshots, loads the latest
+	 * snapshot, replays the segments written after it and opens a new segment after them.
+	 */
+	private void recover() throws IOException {
+		Files.createDirectories(directory);
+		// a snapshot that a crash stopped in the middle of save, the previous one is still there
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*.tmp")) {
+			for (Path f : files) {
+				Files.deleteIfExists(f);
+			}
+		}
+		List<Long> snapshots = numbers("snapshot-");
+		long first = 0; //first segment that is not in the snapshot
+		if (!snapshots.isEmpty()) {
+			first = snapshots.get(snapshots.size() - 1);
+			tree.load(file("snapshot-", first), codec);
+		}
+		List<Long> segments = numbers("log-");
+		long last = first;
+		for (int i = 0; i < segments.size(); i++) {
+			long number = segments.get(i);
+			if (number < first) {
+				Files.deleteIfExists(file("log-", number)); // left by a checkpoint that did not finish deleting
+				continue;
+			}
+			replay(file("log-", number), i == segments.size() - 1);
+			last = number;
+		}
+		synchronized (syncLock) {
+			openSegment(last + 1);
+		}
+	}
+
+	/**
+	 * Applies the frames of a segment to the tree. A frame that is cut short
+	 * or does not match its checksum can only be the last one the process
+	 * wrote before a crash, it is cut off the end of the last segment.
+	 *
+	 * @param file the segment
+	 * @param last true if it is the last segment of the log
+	 * @throws StreamCorruptedException if a frame in the middle of the log is damaged
+	 */
+	private void replay(Path file, boolean last) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer head = ByteBuffer.allocate(FRAME);
+			ByteBuffer batch = ByteBuffer.allocate(BATCH);
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				boolean valid = read(channel, head.clear(), position);
+				int length = valid ? head.getInt(0) : 0;
+				valid = valid && length > 0 && length <= size - position - FRAME;
+				if (valid) {
+					if (batch.capacity() < length) {
+						batch = ByteBuffer.allocate(length);
+					}
+					batch.clear().limit(length);
+					read(channel, batch, position + FRAME);
+					batch.flip();
+					CRC32C crc = new CRC32C();
+					crc.update(batch.duplicate());
+					valid = (int) crc.getValue() == head.getInt(Integer.BYTES);
+				}
+				if (!valid) {
+					if (!last) {
+						throw new StreamCorruptedException(file + " is damaged at byte " + position + ".");
+					}
+					channel.truncate(position);
+					channel.force(true);
+					return;
+				}
+				apply(batch);
+				position += FRAME + length;
+			}
+		}
+	}
+
+	/**
+	 * Applies the records of a frame to the tree.
+	 */
+	private void apply(ByteBuffer batch) throws StreamCorruptedException {
+		while (batch.hasRemaining()) {
+			byte type = batch.get();
+			try {
+				if (type == ADD) {
+					tree.add(codec.read(batch));
+				}
+				else if (type == REMOVE) {
+					tree.remove(codec.read(batch));
+				}
+				else if (type == CLEAR) {
+					tree.clear();
+				}
+				else {
+					throw new StreamCorruptedException("Unknown record type " + type + ".");
+				}
+			}
+			catch (BufferUnderflowException | IllegalArgumentException ex) {
+				throw new StreamCorruptedException("A record does not match the codec: " + ex);
+			}
+		}
+	}
+
+	/**
+	 * Reads the channel from the given position until the buffer is full.
+	 *
+	 * @return false if the channel ends first
+	 */
+	private static boolean read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				return false;
+			}
+			position += read;
+		}
+		return true;
+	}
+
+	/**
+	 * Syncs the directory, so that files created in it are found after a crash.
+	 * Not every platform can open a directory; there the file system is trusted.
+	 */
+	private void syncDirectory() {
+		try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+			dir.force(true);
+		}
+		catch (IOException ex) {
+			// directories cannot be synced on this platform
+		}
+	}
+
+	/**
+	 * @return the path of the segment or snapshot with the given number
+	 */
+	private Path file(String kind, long number) {
+		return directory.resolve(String.format("%s%019d%s", kind, number, kind.equals("log-") ? ".wal" : ".bst"));
+	}
+
+	/**
+	 * @return the numbers of the segments or snapshots in the directory, in ascending order
+	 */
+	private List<Long> numbers(String kind) throws IOException {
+		List<Long> numbers = new ArrayList<>();
+		String suffix = kind.equals("log-") ? ".wal" : ".bst";
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, kind + "*" + suffix)) {
+			for (Path f : files) {
+				String name = f.getFileName().toString();
+				try {
+					numbers.add(Long.parseLong(name.substring(kind.length(), name.length() - suffix.length())));
+				}
+				catch (NumberFormatException ex) {
+					// not one of the files of this tree
+				}
+			}
+		}
+		Collections.sort(numbers);
+		return numbers;
+	}
+}
@@ -0,0 +1,317 @@
+package project4;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents an immutable search tree whose elements are packed in
+ * one array in Eytzinger order (the order of a breadth first traversal): the
+ * root is at index 1 and the children of the element at index k are at 2k and
+ * 2k+1. There are no node objects and no pointers to follow, a descent only
+ * computes the next index, and the first levels of the tree share a few cache
+ * lines that stay in the cache from one search to the next.
+ *
+ * A search goes down all the levels without stopping at an equal element, so
+ * the only branch is the loop: the path taken is kept in the bits of k, and the
+ * answer is the node where the path last turned left (for ceiling and higher)
+ * or right (for floor and lower), found by stripping the trailing turns of k.
+ *
+ * When the tree was made with a KeyPrefix, the prefixes are kept in a long
+ * array next to the elements and a step of the descent reads an element only
+ * if its prefix is equal to the one searched for.
+ *
+ * A frozen tree is made by BST.freeze(). It never changes and can be read
+ * from any number of threads.
+ *
+ * @param <E>
+ */
+public class FrozenBST<E extends Comparable<E>> implements Iterable<E> {
+
+	private final Object[] elements; //elements in Eytzinger order, index 0 is unused
+	private final int[] ranks; //position in ascending order of every element
+	private final int size;
+	private final Comparator<E> comparator; //null for the natural ordering
+	private final KeyPrefix<? super E> keyPrefix; //null if the prefixes are not kept
+	private final long[] prefixes; //prefix of every element, null if there is no keyPrefix
+
+	/**
+	 * Packs the first count elements of a sorted array without duplicates.
+	 *
+	 * @param sorted the elements in ascending order
+	 * @param count number of elements
+	 * @param comparator the ordering of the elements, null for the natural ordering
+	 * @param keyPrefix the prefix of the elements, null if they have none
+	 */
+	FrozenBST(E[] sorted, int count, Comparator<E> comparator, KeyPrefix<? super E> keyPrefix) {
+		this.size = count;
+		this.comparator = comparator;
+		this.keyPrefix = keyPrefix;
+		this.elements = new Object[count + 1];
+		this.ranks = new int[count + 1];
+		this.prefixes = keyPrefix == null ? null : new long[count + 1];
+		// visit the implicit tree in order and hand out the sorted elements
+		int k = firstIndex();
+		for (int i = 0; i < count; i++) {
+			elements[k] = sorted[i];
+			ranks[k] = i;
+			if (prefixes != null)
+				prefixes[k] = keyPrefix.prefix(sorted[i]);
+			k = successor(k);
+		}
+	}
+
+	/**
+	 * @return the number of elements in this tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this tree contains no elements
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this tree contains the specified element.
+	 *
+	 * @param o object to be checked in the tree
+	 * @return true if the tree contains the object
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("The tree does not contain null elements.");
+		}
+		E e = (E) o;
+		int k = above(e, true);
+		return k != 0 && compare(e, element(k)) == 0;
+	}
+
+	/**
+	 * Returns the least element in this tree greater than or equal to the given element,
+	 * or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the element cannot be compared with the elements of the tree
+	 */
+	public E ceiling(E e) throws NullPointerException, ClassCastException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the ceiling for null value.");
+		}
+		return element(above(e, true));
+	}
+
+	/**
+	 * Returns the least element in this tree strictly greater than the given element,
+	 * or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the element cannot be compared with the elements of the tree
+	 */
+	public E higher(E e) throws NullPointerException, ClassCastException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the least higher element for null value.");
+		}
+		return element(above(e, false));
+	}
+
+	/**
+	 * Returns the greatest element in this tree less than or equal to the given element,
+	 * or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the element cannot be compared with the elements of the tree
+	 */
+	public E floor(E e) throws NullPointerException, ClassCastException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the floor for null value.");
+		}
+		return element(below(e, true));
+	}
+
+	/**
+	 * Returns the greatest element in this tree strictly less than the given element,
+	 * or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the element cannot be compared with the elements of the tree
+	 */
+	public E lower(E e) throws NullPointerException, ClassCastException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the closest lower element for null value.");
+		}
+		return element(below(e, false));
+	}
+
+	/**
+	 * Returns the number of elements in this tree that are strictly less than e.
+	 * @param e the value to match
+	 * @return the number of elements less than e
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the element cannot be compared with the elements of the tree
+	 */
+	public int rank(E e) throws NullPointerException, ClassCastException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the rank of null value.");
+		}
+		int k = above(e, true);
+		return k == 0 ? size : ranks[k];
+	}
+
+	/**
+	 * Returns the first (lowest) element in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E first() throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("The tree is empty, no first element available.");
+		}
+		return element(firstIndex());
+	}
+
+	/**
+	 * Returns the last (highest) element in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E last() throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("The tree is empty, no last value available.");
+		}
+		int k = 1;
+		while (2 * k + 1 <= size) {
+			k = 2 * k + 1;
+		}
+		return element(k);
+	}
+
+	/**
+	 * @return the comparator of the elements, null for their natural ordering
+	 */
+	public Comparator<E> comparator() {
+		return comparator;
+	}
+
+	/**
+	 * @return an iterator over the elements in this tree in ascending order
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int k = size == 0 ? 0 : firstIndex();
+
+			public boolean hasNext() {
+				return k != 0;
+			}
+
+			public E next() {
+				if (k == 0) {
+					throw new NoSuchElementException("No more elements in the tree.");
+				}
+				E e = element(k);
+				k = successor(k);
+				return e;
+			}
+		};
+	}
+
+	/**
+	 * Returns the elements in ascending order enclosed in square brackets [].
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (E e : this) {
+			if (sb.length() > 1)
+				sb.append(", ");
+			sb.append(e);
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Descends to the bottom, going right past the elements less than e (or
+	 * not greater than e, if not inclusive), and returns the node where the
+	 * path last turned left: the least element greater than (or equal to) e.
+	 *
+	 * @return its index, 0 if there is none
+	 */
+	private int above(E e, boolean inclusive) {
+		int k = 1;
+		int right = inclusive ? 1 : 0; //the result of compare from which the path goes right
+		long prefix = keyPrefix == null ? 0 : keyPrefix.prefix(e);
+		while (k <= size) {
+			k = 2 * k + (compare(e, prefix, k) >= right ? 1 : 0);
+		}
+		// strip the right turns after the last left turn, and that turn
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+
+	/**
+	 * Descends to the bottom and returns the node where the path last turned
+	 * right: the greatest element less than (or equal to) e.
+	 *
+	 * @return its index, 0 if there is none
+	 */
+	private int below(E e, boolean inclusive) {
+		int k = 1;
+		int right = inclusive ? 0 : 1;
+		long prefix = keyPrefix == null ? 0 : keyPrefix.prefix(e);
+		while (k <= size) {
+			k = 2 * k + (compare(e, prefix, k) >= right ? 1 : 0);
+		}
+		return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+	}
+
+	/**
+	 * @return the index of the lowest element, the end of the leftmost path
+	 */
+	private int firstIndex() {
+		int k = 1;
+		while (2 * k <= size) {
+			k = 2 * k;
+		}
+		return k;
+	}
+
+	/**
+	 * @return the index of the element after the one at k, 0 after the last one
+	 */
+	private int successor(int k) {
+		if (2 * k + 1 <= size) {
+			// the lowest element of the right subtree
+			k = 2 * k + 1;
+			while (2 * k <= size) {
+				k = 2 * k;
+			}
+			return k;
+		}
+		// go up while coming from a right child, then once more
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E element(int k) {
+		return (E) elements[k];
+	}
+
+	/**
+	 * Compares e with the element at index k, by their prefixes first if they are kept.
+	 */
+	private int compare(E e, long prefix, int k) {
+		if (prefixes != null && prefix != prefixes[k])
+			return Long.compareUnsigned(prefix, prefixes[k]);
+		return compare(e, element(k));
+	}
+
+	private int compare(E a, E b) {
+		if (comparator == null)
+			return a.compareTo(b);
+		return comparator.compare(a, b);
+	}
+}
@@ -0,0 +1,253 @@
+package project4;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * This class represents an immutable search tree of long keys packed in one
+ * long array in Eytzinger order, like FrozenBST: the root is at index 1 and
+ * the children of index k are at 2k and 2k+1. A key costs 12 bytes (the key
+ * and its rank) and a search reads only the array, with no branch but the loop.
+ *
+ * A frozen tree is made by LongBST.freeze(). It never changes and can be read
+ * from any number of threads.
+ */
+public class FrozenLongBST {
+
+	private final long[] keys; //keys in Eytzinger order, index 0 is unused
+	private final int[] ranks; //position in ascending order of every key
+	private final int size;
+
+	/**
+	 * Packs the first count keys of a sorted array without duplicates.
+	 *
+	 * @param sorted the keys in ascending order
+	 * @param count number of keys
+	 */
+	FrozenLongBST(long[] sorted, int count) {
+		this.size = count;
+		this.keys = new long[count + 1];
+		this.ranks = new int[count + 1];
+		int k = firstIndex();
+		for (int i = 0; i < count; i++) {
+			keys[k] = sorted[i];
+			ranks[k] = i;
+			k = successor(k);
+		}
+	}
+
+	/**
+	 * @return the number of keys in this tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this tree contains no keys
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if this tree contains the specified key.
+	 *
+	 * @param key key to be checked in the tree
+	 * @return true if the tree contains the key
+	 */
+	public boolean contains(long key) {
+		int k = above(key, true);
+		return k != 0 && keys[k] == key;
+	}
+
+	/**
+	 * Returns the least key greater than or equal to the given key.
+	 *
+	 * @param key the value to match
+	 * @return the least key greater than or equal to key
+	 * @throws NoSuchElementException if there is no such key
+	 */
+	public long ceiling(long key) throws NoSuchElementException {
+		return keyOf(above(key, true), "No key greater than or equal to " + key + ".");
+	}
+
+	/**
+	 * Returns the least key strictly greater than the given key.
+	 *
+	 * @param key the value to match
+	 * @return the least key greater than key
+	 * @throws NoSuchElementException if there is no such key
+	 */
+	public long higher(long key) throws NoSuchElementException {
+		return keyOf(above(key, false), "No key greater than " + key + ".");
+	}
+
+	/**
+	 * Returns the greatest key less than or equal to the given key.
+	 *
+	 * @param key the value to match
+	 * @return the greatest key less than or equal to key
+	 * @throws NoSuchElementException if there is no such key
+	 */
+	public long floor(long key) throws NoSuchElementException {
+		return keyOf(below(key, true), "No key less than or equal to " + key + ".");
+	}
+
+	/**
+	 * Returns the greatest key strictly less than the given key.
+	 *
+	 * @param key the value to match
+	 * @return the greatest key less than key
+	 * @throws NoSuchElementException if there is no such key
+	 */
+	public long lower(long key) throws NoSuchElementException {
+		return keyOf(below(key, false), "No key less than " + key + ".");
+	}
+
+	/**
+	 * Returns the number of keys in this tree that are strictly less than the given key.
+	 *
+	 * @param key the value to match
+	 * @return the number of keys less than key
+	 */
+	public int rank(long key) {
+		int k = above(key, true);
+		return k == 0 ? size : ranks[k];
+	}
+
+	/**
+	 * Returns the first (lowest) key in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public long first() throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("The tree is empty, no first element available.");
+		}
+		return keys[firstIndex()];
+	}
+
+	/**
+	 * Returns the last (highest) key in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public long last() throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("The tree is empty, no last value available.");
+		}
+		int k = 1;
+		while (2 * k + 1 <= size) {
+			k = 2 * k + 1;
+		}
+		return keys[k];
+	}
+
+	/**
+	 * @return an iterator over the keys in this tree in ascending order
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		return new PrimitiveIterator.OfLong() {
+			private int k = size == 0 ? 0 : firstIndex();
+
+			public boolean hasNext() {
+				return k != 0;
+			}
+
+			public long nextLong() {
+				if (k == 0) {
+					throw new NoSuchElementException("No more elements in the tree.");
+				}
+				long key = keys[k];
+				k = successor(k);
+				return key;
+			}
+		};
+	}
+
+	/**
+	 * Returns the keys in ascending order enclosed in square brackets [].
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		PrimitiveIterator.OfLong it = iterator();
+		while (it.hasNext()) {
+			sb.append(it.nextLong());
+			if (it.hasNext())
+				sb.append(", ");
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Descends to the bottom, going right past the keys less than key (or not
+	 * greater than key, if not inclusive), and returns the node where the path
+	 * last turned left. The comparison is turned into the next bit of the path
+	 * with a conditional move, not a branch.
+	 *
+	 * @return its index, 0 if there is none
+	 */
+	private int above(long key, boolean inclusive) {
+		int k = 1;
+		if (inclusive) {
+			while (k <= size) {
+				k = 2 * k + (keys[k] < key ? 1 : 0);
+			}
+		}
+		else {
+			while (k <= size) {
+				k = 2 * k + (keys[k] <= key ? 1 : 0);
+			}
+		}
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+
+	/**
+	 * Descends to the bottom and returns the node where the path last turned right.
+	 *
+	 * @return its index, 0 if there is none
+	 */
+	private int below(long key, boolean inclusive) {
+		int k = 1;
+		if (inclusive) {
+			while (k <= size) {
+				k = 2 * k + (keys[k] <= key ? 1 : 0);
+			}
+		}
+		else {
+			while (k <= size) {
+				k = 2 * k + (keys[k] < key ? 1 : 0);
+			}
+		}
+		return k >>> (Integer.numberOfTrailingZeros(k) + 1);
+	}
+
+	private long keyOf(int k, String message) throws NoSuchElementException {
+		if (k == 0) {
+			throw new NoSuchElementException(message);
+		}
+		return keys[k];
+	}
+
+	private int firstIndex() {
+		int k = 1;
+		while (2 * k <= size) {
+			k = 2 * k;
+		}
+		return k;
+	}
+
+	/**
+	 * @return the index of the key after the one at k, 0 after the last one
+	 */
+	private int successor(int k) {
+		if (2 * k + 1 <= size) {
+			k = 2 * k + 1;
+			while (2 * k <= size) {
+				k = 2 * k;
+			}
+			return k;
+		}
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+}
@@ -0,0 +1,453 @@
+package project4;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * This class represents a balanced (AVL) Binary Search Tree of int keys.
+ * It mirrors the BST api without boxing: the nodes are not objects but indices
+ * into parallel arrays holding the key, the left child, the right child and the
+ * height of every node. Index 0 is the null node. The slots of removed nodes are
+ * kept in a free list and reused by the following adds.
+ * A node costs 13 bytes instead of a BSTNode plus a boxed Integer.
+ */
+public class IntBST {
+
+	private static final int NIL = 0; //index of the null node
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] keys; //key of every node
+	private int[] left; //index of the left child of every node
+	private int[] right; //index of the right child of every node
+	private byte[] height; //height of every node, 1 for a leaf and 0 for NIL
+	private int root = NIL; //index of the root node
+	private int size; //number of elements in the tree
+	private int next = 1; //first slot that has never been used
+	private int free = NIL; //first slot of the free list, linked through left[]
+
+	/**
+	 * Constructs a new, empty tree.
+	 */
+	public IntBST() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs a new, empty tree with room for the given number of elements.
+	 *
+	 * @param capacity number of elements the tree can hold before it grows
+	 * @throws IllegalArgumentException if the capacity is negative
+	 */
+	public IntBST(int capacity) throws IllegalArgumentException {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative.");
+		}
+		keys = new int[capacity + 1];
+		left = new int[capacity + 1];
+		right = new int[capacity + 1];
+		height = new byte[capacity + 1];
+	}
+
+	/**
+	 * @return the number of elements in this tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this tree contains no elements
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the elements from this tree. The arrays are kept for reuse.
+	 */
+	public void clear() {
+		root = NIL;
+		size = 0;
+		next = 1;
+		free = NIL;
+	}
+
+	/**
+	 * Adds the specified key to this tree if it is not already present.
+	 *
+	 * @param key key to be added to this tree
+	 * @return true if this tree did not already contain the specified key
+	 */
+	public boolean add(int key) {
+		int before = size;
+		root = add(root, key);
+		return size != before;
+	}
+
+	private int add(int node, int key) {
+		if (node == NIL) {
+			return newNode(key);
+		}
+		// the child is stored after the call because adding may grow the arrays
+		if (key < keys[node]) {
+			int child = add(left[node], key);
+			left[node] = child;
+		}
+		else if (key > keys[node]) {
+			int child = add(right[node], key);
+			right[node] = child;
+		}
+		else {
+			return node; // already in the tree
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Removes the specified key from this tree if it is present.
+	 *
+	 * @param key key to be removed from this tree
+	 * @return true if the tree contained the key
+	 */
+	public boolean remove(int key) {
+		int before = size;
+		root = remove(root, key);
+		return size != before;
+	}
+
+	private int remove(int node, int key) {
+		if (node == NIL) {
+			return NIL;
+		}
+		if (key < keys[node]) {
+			left[node] = remove(left[node], key);
+		}
+		else if (key > keys[node]) {
+			right[node] = remove(right[node], key);
+		}
+		else if (left[node] == NIL || right[node] == NIL) {
+			int child = left[node] == NIL ? right[node] : left[node];
+			freeNode(node);
+			return child;
+		}
+		else {
+			// replace by the smallest key of the right subtree
+			int successor = right[node];
+			while (left[successor] != NIL) {
+				successor = left[successor];
+			}
+			keys[node] = keys[successor];
+			right[node] = remove(right[node], keys[successor]);
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Returns true if this tree contains the specified key.
+	 *
+	 * @param key key to be checked in the tree
+	 * @return true if the tree contains the key
+	 */
+	public boolean contains(int key) {
+		int node = root;
+		while (node != NIL) {
+			int k = keys[node];
+			if (key == k)
+				return true;
+			node = key < k ? left[node] : right[node];
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the least key greater than or equal to the given key.
+	 *
+	 * @param key the value to match
+	 * @return the least key greater than or equal to key
+	 * @throws NoSuchElementException if there is no such key
+	 */
+	public int ceiling(int key) throws NoSuchElementException {
+		return keyOf(above(key, true), "No key greater than or equal to " + key + ".");
+	}
+
+	/**
+	 * Returns the least key strictly greater than the given key.
+	 *
+	 * @param key the value to match
+	 * @return the least key greater than key
+	 * @throws NoSuchElementException if there is no such key
+	 */
+	public int higher(int key) throws NoSuchElementException {
+		return keyOf(above(key, false), "No key greater than " + key + ".");
+	}
+
+	/**
+	 * Returns the greatest key less than or equal to the given key.
+	 *
+	 * @param key the value to match
+	 * @return the greatest key less than or equal to key
+	 * @throws NoSuchElementException if there is no such key
+	 */
+	public int floor(int key) throws NoSuchElementException {
+		return keyOf(below(key, true), "No key less than or equal to " + key + ".");
+	}
+
+	/**
+	 * Returns the greatest key strictly less than the given key.
+	 *
+	 * @param key the value to match
+	 * @return the greatest key less than key
+	 * @throws NoSuchElementException if there is no such key
+	 */
+	public int lower(int key) throws NoSuchElementException {
+		return keyOf(below(key, false), "No key less than " + key + ".");
+	}
+
+	/**
+	 * Returns the first (lowest) key currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public int first() throws NoSuchElementException {
+		int node = root;
+		if (node == NIL) {
+			throw new NoSuchElementException("The tree is empty, no first element available.");
+		}
+		while (left[node] != NIL) {
+			node = left[node];
+		}
+		return keys[node];
+	}
+
+	/**
+	 * Returns the last (highest) key currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public int last() throws NoSuchElementException {
+		int node = root;
+		if (node == NIL) {
+			throw new NoSuchElementException("The tree is empty, no last value available.");
+		}
+		while (right[node] != NIL) {
+			node = right[node];
+		}
+		return keys[node];
+	}
+
+	/**
+	 * @return an iterator over the keys in this tree in ascending order
+	 */
+	public PrimitiveIterator.OfInt iterator() {
+		return new IntIterator();
+	}
+
+	/**
+	 * Returns an immutable copy of the current keys of this tree packed in one
+	 * array in Eytzinger order, which answers lookups faster than this tree
+	 * once the keys no longer change.
+	 *
+	 * @return a frozen tree with the keys this tree has now
+	 */
+	public FrozenIntBST freeze() {
+		int[] sorted = new int[size];
+		PrimitiveIterator.OfInt it = iterator();
+		for (int i = 0; i < size; i++) {
+			sorted[i] = it.nextInt();
+		}
+		return new FrozenIntBST(sorted, size);
+	}
+
+	/**
+	 * Returns the keys in ascending order enclosed in square brackets [].
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		PrimitiveIterator.OfInt it = iterator();
+		while (it.hasNext()) {
+			sb.append(it.nextInt());
+			if (it.hasNext())
+				sb.append(", ");
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Descends from the root and remembers the last node whose key is
+	 * greater than (or equal to, if inclusive) the given key.
+	 */
+	private int above(int key, boolean inclusive) {
+		int result = NIL;
+		int node = root;
+		while (node != NIL) {
+			int k = keys[node];
+			if (key < k || (inclusive && key == k)) {
+				result = node;
+				node = left[node];
+			}
+			else
+				node = right[node];
+		}
+		return result;
+	}
+
+	/**
+	 * Descends from the root and remembers the last node whose key is
+	 * less than (or equal to, if inclusive) the given key.
+	 */
+	private int below(int key, boolean inclusive) {
+		int result = NIL;
+		int node = root;
+		while (node != NIL) {
+			int k = keys[node];
+			if (key > k || (inclusive && key == k)) {
+				result = node;
+				node = right[node];
+			}
+			else
+				node = left[node];
+		}
+		return result;
+	}
+
+	private int keyOf(int node, String message) throws NoSuchElementException {
+		if (node == NIL) {
+			throw new NoSuchElementException(message);
+		}
+		return keys[node];
+	}
+
+	/**
+	 * Takes a slot from the free list, or the next unused slot, and
+	 * initializes it as a leaf.
+	 */
+	private int newNode(int key) {
+		int node;
+		if (free != NIL) {
+			node = free;
+			free = left[node];
+		}
+		else {
+			if (next == keys.length) {
+				grow();
+			}
+			node = next++;
+		}
+		keys[node] = key;
+		left[node] = NIL;
+		right[node] = NIL;
+		height[node] = 1;
+		size++;
+		return node;
+	}
+
+	/**
+	 * Puts a removed slot on the free list.
+	 */
+	private void freeNode(int node) {
+		left[node] = free;
+		free = node;
+		size--;
+	}
+
+	private void grow() {
+		int capacity = keys.length + (keys.length >> 1) + 1;
+		keys = Arrays.copyOf(keys, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		height = Arrays.copyOf(height, capacity);
+	}
+
+	/**
+	 * Updates the height of a node and performs the rotation needed if
+	 * the heights of its subtrees differ by two.
+	 */
+	private int rebalance(int node) {
+		update(node);
+		int balance = height[right[node]] - height[left[node]];
+		// left subtree is too high
+		if (balance == -2) {
+			int l = left[node];
+			if (height[left[l]] >= height[right[l]]) {
+				return rotateLL(node);
+			}
+			return rotateLR(node);
+		}
+		// right subtree is too high
+		if (balance == 2) {
+			int r = right[node];
+			if (height[right[r]] >= height[left[r]]) {
+				return rotateRR(node);
+			}
+			return rotateRL(node);
+		}
+		return node;
+	}
+
+	private int rotateLL(int a) {
+		int b = left[a];
+		left[a] = right[b];
+		right[b] = a;
+		update(a);
+		update(b);
+		return b;
+	}
+
+	private int rotateLR(int a) {
+		left[a] = rotateRR(left[a]);
+		return rotateLL(a);
+	}
+
+	private int rotateRL(int a) {
+		right[a] = rotateLL(right[a]);
+		return rotateRR(a);
+	}
+
+	private int rotateRR(int a) {
+		int b = right[a];
+		right[a] = left[b];
+		left[b] = a;
+		update(a);
+		update(b);
+		return b;
+	}
+
+	private void update(int node) {
+		height[node] = (byte) (1 + Math.max(height[left[node]], height[right[node]]));
+	}
+
+	/**
+	 * This class represents an inorder iterator over the keys.
+	 * The height of an AVL tree with fewer than 2^31 nodes is below 64,
+	 * so the stack of node indices never grows.
+	 */
+	private class IntIterator implements PrimitiveIterator.OfInt {
+
+		private final int[] stack = new int[64];
+		private int top;
+
+		IntIterator() {
+			pushLeft(root);
+		}
+
+		private void pushLeft(int node) {
+			while (node != NIL) {
+				stack[top++] = node;
+				node = left[node];
+			}
+		}
+
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		public int nextInt() {
+			if (top == 0) {
+				throw new NoSuchElementException("No more elements in the tree.");
+			}
+			int node = stack[--top];
+			pushLeft(right[node]);
+			return keys[node];
+		}
+	}
+}
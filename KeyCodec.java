@@ -0,0 +1,133 @@
+package project4;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * This interface describes how keys of any length are stored in a snapshot file
+ * (see BST.save and BST.load). Unlike KeyLayout, the encoding does not have
+ * to keep the order of the keys, the file already has them in order.
+ * Buffers are accessed with relative gets and puts in big endian order.
+ *
+ * A codec does not check whether the buffer has enough room: it lets the
+ * BufferOverflowException or BufferUnderflowException of the buffer go up.
+ * The caller then moves the buffer back to the start of the key, makes room
+ * or reads more of the file, and calls the codec again.
+ *
+ * @param <E> type of the keys
+ */
+public interface KeyCodec<E> {
+
+	/**
+	 * Writes the encoded key at the position of the buffer.
+	 *
+	 * @param key key to be encoded, never null
+	 * @param buffer buffer to write to
+	 * @throws BufferOverflowException if the buffer has no room for the whole key
+	 */
+	void write(E key, ByteBuffer buffer) throws BufferOverflowException;
+
+	/**
+	 * Reads the key encoded at the position of the buffer.
+	 *
+	 * @param buffer buffer to read from
+	 * @return the decoded key
+	 * @throws BufferUnderflowException if the buffer does not hold the whole key
+	 * @throws IllegalArgumentException if the bytes are not a valid key
+	 */
+	E read(ByteBuffer buffer) throws BufferUnderflowException, IllegalArgumentException;
+
+	/**
+	 * Integer keys in 4 bytes.
+	 */
+	KeyCodec<Integer> INT = new KeyCodec<Integer>() {
+		public void write(Integer key, ByteBuffer buffer) {
+			buffer.putInt(key);
+		}
+
+		public Integer read(ByteBuffer buffer) {
+			return buffer.getInt();
+		}
+	};
+
+	/**
+	 * Long keys in 8 bytes.
+	 */
+	KeyCodec<Long> LONG = new KeyCodec<Long>() {
+		public void write(Long key, ByteBuffer buffer) {
+			buffer.putLong(key);
+		}
+
+		public Long read(ByteBuffer buffer) {
+			return buffer.getLong();
+		}
+	};
+
+	/**
+	 * Strings in UTF-8, after their length in bytes in 4 bytes.
+	 */
+	KeyCodec<String> STRING = new KeyCodec<String>() {
+		public void write(String key, ByteBuffer buffer) {
+			byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+
+		public String read(ByteBuffer buffer) {
+			int length = buffer.getInt();
+			if (length < 0) {
+				throw new IllegalArgumentException("Negative string length " + length + ".");
+			}
+			if (length > buffer.remaining()) {
+				throw new BufferUnderflowException(); // before the array is allocated
+			}
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/**
+	 * Rest stops with their label, supplies and obstacles, each list after
+	 * its number of strings in 4 bytes.
+	 */
+	KeyCodec<RestStop> REST_STOP = new KeyCodec<RestStop>() {
+		public void write(RestStop stop, ByteBuffer buffer) {
+			STRING.write(stop.getLabel(), buffer);
+			writeList(stop.getSupplies(), buffer);
+			writeList(stop.getObstacles(), buffer);
+		}
+
+		public RestStop read(ByteBuffer buffer) {
+			RestStop stop = new RestStop(STRING.read(buffer));
+			stop.setSupplies(readList(buffer));
+			stop.setObstacles(readList(buffer));
+			return stop;
+		}
+
+		private void writeList(ArrayList<String> list, ByteBuffer buffer) {
+			buffer.putInt(list.size());
+			for (String s : list) {
+				STRING.write(s, buffer);
+			}
+		}
+
+		private ArrayList<String> readList(ByteBuffer buffer) {
+			int size = buffer.getInt();
+			if (size < 0) {
+				throw new IllegalArgumentException("Negative list size " + size + ".");
+			}
+			if (size > buffer.remaining() / Integer.BYTES) {
+				throw new BufferUnderflowException(); // every string takes at least 4 bytes
+			}
+			ArrayList<String> list = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				list.add(STRING.read(buffer));
+			}
+			return list;
+		}
+	};
+}
@@ -0,0 +1,127 @@
+package project4;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This interface describes how keys of a fixed width are stored in a byte buffer.
+ * The encoding has to preserve the order of the keys: comparing two encoded keys
+ * byte by byte as unsigned numbers has to give the same result as comparing the keys.
+ * Buffers are accessed with absolute gets and puts in big endian order.
+ *
+ * @param <E> type of the keys
+ */
+public interface KeyLayout<E> {
+
+	/**
+	 * @return the number of bytes of an encoded key
+	 */
+	int width();
+
+	/**
+	 * Writes the encoded key at the given offset of the buffer.
+	 *
+	 * @param key key to be encoded
+	 * @param buffer buffer to write to
+	 * @param offset position of the first byte
+	 * @throws IllegalArgumentException if the key cannot be encoded in width() bytes
+	 */
+	void write(E key, ByteBuffer buffer, int offset) throws IllegalArgumentException;
+
+	/**
+	 * Reads the key encoded at the given offset of the buffer.
+	 *
+	 * @param buffer buffer to read from
+	 * @param offset position of the first byte
+	 * @return the decoded key
+	 */
+	E read(ByteBuffer buffer, int offset);
+
+	/**
+	 * Long keys in 8 bytes. The sign bit is flipped so that negative
+	 * numbers sort before positive ones.
+	 */
+	KeyLayout<Long> LONG = new KeyLayout<Long>() {
+		public int width() {
+			return Long.BYTES;
+		}
+
+		public void write(Long key, ByteBuffer buffer, int offset) {
+			buffer.putLong(offset, key ^ Long.MIN_VALUE);
+		}
+
+		public Long read(ByteBuffer buffer, int offset) {
+			return buffer.getLong(offset) ^ Long.MIN_VALUE;
+		}
+	};
+
+	/**
+	 * Integer keys in 4 bytes. The sign bit is flipped so that negative
+	 * numbers sort before positive ones.
+	 */
+	KeyLayout<Integer> INT = new KeyLayout<Integer>() {
+		public int width() {
+			return Integer.BYTES;
+		}
+
+		public void write(Integer key, ByteBuffer buffer, int offset) {
+			buffer.putInt(offset, key ^ Integer.MIN_VALUE);
+		}
+
+		public Integer read(ByteBuffer buffer, int offset) {
+			return buffer.getInt(offset) ^ Integer.MIN_VALUE;
+		}
+	};
+
+	/**
+	 * Returns the layout of byte arrays of the given length, ordered
+	 * lexicographically as unsigned bytes (like Arrays.compareUnsigned).
+	 *
+	 * @param width length of every key
+	 * @return the layout for keys of that length
+	 * @throws IllegalArgumentException if the width is not positive
+	 */
+	static KeyLayout<byte[]> bytes(int width) throws IllegalArgumentException {
+		if (width <= 0) {
+			throw new IllegalArgumentException("Key width has to be positive.");
+		}
+		return new KeyLayout<byte[]>() {
+			public int width() {
+				return width;
+			}
+
+			public void write(byte[] key, ByteBuffer buffer, int offset) {
+				if (key.length != width) {
+					throw new IllegalArgumentException("Key of length " + key.length
+							+ " does not match the width " + width + ".");
+				}
+				buffer.put(offset, key);
+			}
+
+			public byte[] read(ByteBuffer buffer, int offset) {
+				byte[] key = new byte[width];
+				buffer.get(offset, key);
+				return key;
+			}
+
+			@Override
+			public String toString() {
+				return "bytes(" + width + ")";
+			}
+		};
+	}
+
+	/**
+	 * Returns a readable form of a key, used by the trees that store
+	 * keys of this layout when they print themselves.
+	 *
+	 * @param key key to be printed
+	 * @return the key as a string
+	 */
+	default String format(E key) {
+		if (key instanceof byte[]) {
+			return Arrays.toString((byte[]) key);
+		}
+		return String.valueOf(key);
+	}
+}
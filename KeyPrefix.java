@@ -0,0 +1,56 @@
+package project4;
+
+/**
+ * This interface describes how the first part of a key is packed into a long,
+ * so that a tree can compare two keys without reading them from memory.
+ * The prefix has to preserve the order of the keys: if the prefix of a is less
+ * than the prefix of b, compared as unsigned numbers, then a has to be less
+ * than b in the order of the tree. Keys with the same prefix are compared
+ * with compareTo (or the comparator of the tree).
+ *
+ * @param <E> type of the keys
+ */
+@FunctionalInterface
+public interface KeyPrefix<E> {
+
+	/**
+	 * Returns the prefix of a key.
+	 *
+	 * @param key key to be packed, never null
+	 * @return a long whose unsigned order agrees with the order of the keys
+	 */
+	long prefix(E key);
+
+	/**
+	 * Strings in their natural order (String.compareTo). The characters are
+	 * encoded so that the bytes keep their order: characters below 0x7F take
+	 * one byte, the others three, and the first eight bytes are kept.
+	 * An ASCII string has its first eight characters in the prefix, a shorter
+	 * string is padded with zeros, which sort before every character.
+	 */
+	KeyPrefix<String> STRING = key -> {
+		long prefix = 0;
+		int bytes = 0;
+		for (int i = 0; i < key.length() && bytes < Long.BYTES; i++) {
+			char c = key.charAt(i);
+			if (c < 0x7F) {
+				prefix = (prefix << 8) | (c + 1);
+				bytes++;
+			}
+			else {
+				// 2, 7 and 7 bits of the character, the first byte above every one byte code
+				int[] code = { 0x80 | (c >>> 14), (c >>> 7) & 0x7F, c & 0x7F };
+				for (int j = 0; j < code.length && bytes < Long.BYTES; j++) {
+					prefix = (prefix << 8) | code[j];
+					bytes++;
+				}
+			}
+		}
+		return prefix << (8 * (Long.BYTES - bytes));
+	};
+
+	/**
+	 * Rest stops in the order of their labels.
+	 */
+	KeyPrefix<RestStop> REST_STOP = stop -> STRING.prefix(stop.getLabel());
+}
@@ -0,0 +1,615 @@
+package project4;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents a balanced (AVL) Binary Search Tree whose nodes are
+ * stored outside of the java heap, in chunks of direct memory.
+ * Keys have a fixed width described by a KeyLayout, and are compared in their
+ * encoded form, 8 bytes at a time, without being decoded.
+ * A node is an index into the chunks; index 0 is the null node and the slots of
+ * removed nodes are kept in a free list.
+ *
+ * Every node is laid out as
+ * <pre>
+ * | key, padded to a multiple of 8 bytes | left int | right int | height int |
+ * </pre>
+ * The heap only holds the array of chunk references, so its size does not grow
+ * with the number of elements. The memory is released by close(); the tree
+ * cannot be used afterwards. Like BST, this class is not thread safe.
+ *
+ * @param <E> type of the keys
+ */
+public class OffHeapBST<E> implements Iterable<E>, AutoCloseable {
+
+	private static final int NIL = 0; //index of the null node
+	private static final int MAX_CHUNK_SHIFT = 16; //at most 2^16 nodes per chunk
+	private static final long MAX_CHUNK_BYTES = 1 << 26; //chunks of wide keys hold fewer nodes
+
+	private final KeyLayout<E> layout;
+	private final int keyWords; //number of 8 byte words of a padded key
+	private final int leftOffset; //offset of the left index in a node
+	private final int nodeBytes; //size of a node
+	private final int chunkShift; //a chunk holds 2^chunkShift nodes
+	private final int chunkMask;
+	private final ByteBuffer probe; //the key being searched for, encoded
+	private final long[] probeWords; //the same key as words
+
+	private ByteBuffer[] chunks = new ByteBuffer[8];
+	private int chunkCount;
+	private int root = NIL; //index of the root node
+	private int size; //number of elements in the tree
+	private int next = 1; //first slot that has never been used
+	private int free = NIL; //first slot of the free list, linked through the left index
+	private boolean closed;
+
+	/**
+	 * Constructs a new, empty tree for keys of the given layout.
+	 *
+	 * @param layout encoding of the keys
+	 * @throws NullPointerException if the layout is null
+	 * @throws IllegalArgumentException if a node for keys of this width does not fit in a ByteBuffer
+	 */
+	public OffHeapBST(KeyLayout<E> layout) throws NullPointerException, IllegalArgumentException {
+		if (layout == null) {
+			throw new NullPointerException("Key layout cannot be null.");
+		}
+		long words = (layout.width() + 7L) / 8;
+		long bytes = words * 8 + 3 * Integer.BYTES;
+		if (bytes > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Keys of width " + layout.width() + " are too wide for a node.");
+		}
+		// the size of a chunk is computed as a long so that wide keys cannot overflow it
+		int shift = MAX_CHUNK_SHIFT;
+		while (shift > 0 && (bytes << shift) > MAX_CHUNK_BYTES) {
+			shift--;
+		}
+		this.layout = layout;
+		this.keyWords = (int) words;
+		this.leftOffset = keyWords * 8;
+		this.nodeBytes = (int) bytes;
+		this.chunkShift = shift;
+		this.chunkMask = (1 << shift) - 1;
+		this.probe = ByteBuffer.allocate(leftOffset);
+		this.probeWords = new long[keyWords];
+	}
+
+	/**
+	 * @return the number of elements in this tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this tree contains no elements
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the elements from this tree. The memory is kept for reuse.
+	 */
+	public void clear() {
+		checkOpen();
+		root = NIL;
+		size = 0;
+		next = 1;
+		free = NIL;
+	}
+
+	/**
+	 * Releases the memory of this tree. Any later operation throws IllegalStateException.
+	 */
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		for (int i = 0; i < chunkCount; i++) {
+			release(chunks[i]);
+			chunks[i] = null;
+		}
+		chunkCount = 0;
+		root = NIL;
+		size = 0;
+	}
+
+	/**
+	 * Adds the specified key to this tree if it is not already present.
+	 *
+	 * @param key key to be added to this tree
+	 * @return true if this tree did not already contain the specified key
+	 * @throws NullPointerException if the key is null
+	 * @throws IllegalArgumentException if the key does not fit the layout
+	 */
+	public boolean add(E key) throws NullPointerException, IllegalArgumentException {
+		if (key == null) {
+			throw new NullPointerException("Null values cannot be added to the tree.");
+		}
+		setProbe(key);
+		int before = size;
+		root = add(root);
+		return size != before;
+	}
+
+	private int add(int node) {
+		if (node == NIL) {
+			return newNode();
+		}
+		int cmp = compareProbe(node);
+		// the child is stored after the call because adding may allocate a chunk
+		if (cmp < 0) {
+			int child = add(left(node));
+			setLeft(node, child);
+		}
+		else if (cmp > 0) {
+			int child = add(right(node));
+			setRight(node, child);
+		}
+		else {
+			return node; // already in the tree
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Removes the specified key from this tree if it is present.
+	 *
+	 * @param key key to be removed from this tree
+	 * @return true if the tree contained the key
+	 * @throws NullPointerException if the key is null
+	 */
+	public boolean remove(E key) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("Cannot remove a null element from the tree.");
+		}
+		setProbe(key);
+		int before = size;
+		root = remove(root);
+		return size != before;
+	}
+
+	private int remove(int node) {
+		if (node == NIL) {
+			return NIL;
+		}
+		int cmp = compareProbe(node);
+		if (cmp < 0) {
+			setLeft(node, remove(left(node)));
+		}
+		else if (cmp > 0) {
+			setRight(node, remove(right(node)));
+		}
+		else if (left(node) == NIL || right(node) == NIL) {
+			int child = left(node) == NIL ? right(node) : left(node);
+			freeNode(node);
+			return child;
+		}
+		else {
+			// replace by the smallest key of the right subtree,
+			// which then becomes the key to remove below
+			int successor = right(node);
+			while (left(successor) != NIL) {
+				successor = left(successor);
+			}
+			ByteBuffer from = chunk(successor);
+			ByteBuffer to = chunk(node);
+			int fromOffset = offset(successor);
+			int toOffset = offset(node);
+			for (int w = 0; w < keyWords; w++) {
+				long word = from.getLong(fromOffset + w * 8);
+				to.putLong(toOffset + w * 8, word);
+				probeWords[w] = word;
+			}
+			setRight(node, remove(right(node)));
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Returns true if this tree contains the specified key.
+	 *
+	 * @param key key to be checked in the tree
+	 * @throws NullPointerException if the key is null
+	 */
+	public boolean contains(E key) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("The tree does not contain null elements.");
+		}
+		setProbe(key);
+		int node = root;
+		while (node != NIL) {
+			int cmp = compareProbe(node);
+			if (cmp == 0)
+				return true;
+			node = cmp < 0 ? left(node) : right(node);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the least key greater than or equal to the given key, or null if there is no such key.
+	 * @throws NullPointerException if the key is null
+	 */
+	public E ceiling(E key) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("Cannot find the ceiling for null value.");
+		}
+		return keyOf(above(key, true));
+	}
+
+	/**
+	 * Returns the least key strictly greater than the given key, or null if there is no such key.
+	 * @throws NullPointerException if the key is null
+	 */
+	public E higher(E key) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("Cannot find the least higher element for null value.");
+		}
+		return keyOf(above(key, false));
+	}
+
+	/**
+	 * Returns the greatest key less than or equal to the given key, or null if there is no such key.
+	 * @throws NullPointerException if the key is null
+	 */
+	public E floor(E key) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("Cannot find the floor for null value.");
+		}
+		return keyOf(below(key, true));
+	}
+
+	/**
+	 * Returns the greatest key strictly less than the given key, or null if there is no such key.
+	 * @throws NullPointerException if the key is null
+	 */
+	public E lower(E key) throws NullPointerException {
+		if (key == null) {
+			throw new NullPointerException("Cannot find the closest lower element for null value.");
+		}
+		return keyOf(below(key, false));
+	}
+
+	private int above(E key, boolean inclusive) {
+		setProbe(key);
+		int result = NIL;
+		int node = root;
+		while (node != NIL) {
+			int cmp = compareProbe(node);
+			if (cmp < 0 || (inclusive && cmp == 0)) {
+				result = node;
+				node = left(node);
+			}
+			else
+				node = right(node);
+		}
+		return result;
+	}
+
+	private int below(E key, boolean inclusive) {
+		setProbe(key);
+		int result = NIL;
+		int node = root;
+		while (node != NIL) {
+			int cmp = compareProbe(node);
+			if (cmp > 0 || (inclusive && cmp == 0)) {
+				result = node;
+				node = right(node);
+			}
+			else
+				node = left(node);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first (lowest) key currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E first() throws NoSuchElementException {
+		checkOpen();
+		int node = root;
+		if (node == NIL) {
+			throw new NoSuchElementException("The tree is empty, no first element available.");
+		}
+		while (left(node) != NIL) {
+			node = left(node);
+		}
+		return keyOf(node);
+	}
+
+	/**
+	 * Returns the last (highest) key currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E last() throws NoSuchElementException {
+		checkOpen();
+		int node = root;
+		if (node == NIL) {
+			throw new NoSuchElementException("The tree is empty, no last value available.");
+		}
+		while (right(node) != NIL) {
+			node = right(node);
+		}
+		return keyOf(node);
+	}
+
+	/**
+	 * @return an iterator over the keys in this tree in ascending order
+	 */
+	public Iterator<E> iterator() {
+		checkOpen();
+		return new OffHeapIterator();
+	}
+
+	/**
+	 * Returns the keys in ascending order enclosed in square brackets [].
+	 */
+	@Override
+	public String toString() {
+		if (closed)
+			return "[closed]";
+		StringBuilder sb = new StringBuilder("[");
+		for (E e : this) {
+			if (sb.length() > 1)
+				sb.append(", ");
+			sb.append(layout.format(e));
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Encodes the key into the probe and splits it into words.
+	 */
+	private void setProbe(E key) {
+		checkOpen();
+		// clear the padding so it compares equal to the padding of the nodes
+		probe.putLong(leftOffset - 8, 0L);
+		layout.write(key, probe, 0);
+		for (int w = 0; w < keyWords; w++) {
+			probeWords[w] = probe.getLong(w * 8);
+		}
+	}
+
+	/**
+	 * Compares the probe with the key of a node as unsigned big endian words.
+	 */
+	private int compareProbe(int node) {
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node);
+		for (int w = 0; w < keyWords; w++) {
+			int cmp = Long.compareUnsigned(probeWords[w], chunk.getLong(offset + w * 8));
+			if (cmp != 0)
+				return cmp;
+		}
+		return 0;
+	}
+
+	private E keyOf(int node) {
+		if (node == NIL)
+			return null;
+		return layout.read(chunk(node), offset(node));
+	}
+
+	private void checkOpen() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("The tree has been closed.");
+		}
+	}
+
+	private ByteBuffer chunk(int node) {
+		return chunks[node >>> chunkShift];
+	}
+
+	private int offset(int node) {
+		return (node & chunkMask) * nodeBytes;
+	}
+
+	private int left(int node) {
+		return chunk(node).getInt(offset(node) + leftOffset);
+	}
+
+	private int right(int node) {
+		return chunk(node).getInt(offset(node) + leftOffset + 4);
+	}
+
+	private int height(int node) {
+		if (node == NIL)
+			return 0;
+		return chunk(node).getInt(offset(node) + leftOffset + 8);
+	}
+
+	private void setLeft(int node, int child) {
+		chunk(node).putInt(offset(node) + leftOffset, child);
+	}
+
+	private void setRight(int node, int child) {
+		chunk(node).putInt(offset(node) + leftOffset + 4, child);
+	}
+
+	private void setHeight(int node, int height) {
+		chunk(node).putInt(offset(node) + leftOffset + 8, height);
+	}
+
+	/**
+	 * Takes a slot from the free list, or the next unused slot, and
+	 * initializes it as a leaf holding the probe.
+	 */
+	private int newNode() {
+		int node;
+		if (free != NIL) {
+			node = free;
+			free = left(node);
+		}
+		else {
+			if ((next >>> chunkShift) == chunkCount) {
+				addChunk();
+			}
+			node = next++;
+		}
+		ByteBuffer chunk = chunk(node);
+		int offset = offset(node);
+		for (int w = 0; w < keyWords; w++) {
+			chunk.putLong(offset + w * 8, probeWords[w]);
+		}
+		setLeft(node, NIL);
+		setRight(node, NIL);
+		setHeight(node, 1);
+		size++;
+		return node;
+	}
+
+	/**
+	 * Puts a removed slot on the free list.
+	 */
+	private void freeNode(int node) {
+		setLeft(node, free);
+		free = node;
+		size--;
+	}
+
+	private void addChunk() {
+		if (chunkCount == chunks.length) {
+			chunks = Arrays.copyOf(chunks, chunks.length * 2);
+		}
+		chunks[chunkCount++] = ByteBuffer.allocateDirect(nodeBytes << chunkShift);
+	}
+
+	/**
+	 * Updates the height of a node and performs the rotation needed if
+	 * the heights of its subtrees differ by two.
+	 */
+	private int rebalance(int node) {
+		update(node);
+		int balance = height(right(node)) - height(left(node));
+		// left subtree is too high
+		if (balance == -2) {
+			int l = left(node);
+			if (height(left(l)) >= height(right(l))) {
+				return rotateLL(node);
+			}
+			return rotateLR(node);
+		}
+		// right subtree is too high
+		if (balance == 2) {
+			int r = right(node);
+			if (height(right(r)) >= height(left(r))) {
+				return rotateRR(node);
+			}
+			return rotateRL(node);
+		}
+		return node;
+	}
+
+	private int rotateLL(int a) {
+		int b = left(a);
+		setLeft(a, right(b));
+		setRight(b, a);
+		update(a);
+		update(b);
+		return b;
+	}
+
+	private int rotateLR(int a) {
+		setLeft(a, rotateRR(left(a)));
+		return rotateLL(a);
+	}
+
+	private int rotateRL(int a) {
+		setRight(a, rotateLL(right(a)));
+		return rotateRR(a);
+	}
+
+	private int rotateRR(int a) {
+		int b = right(a);
+		setRight(a, left(b));
+		setLeft(b, a);
+		update(a);
+		update(b);
+		return b;
+	}
+
+	private void update(int node) {
+		setHeight(node, 1 + Math.max(height(left(node)), height(right(node))));
+	}
+
+	/**
+	 * Frees the memory of a direct buffer right away instead of waiting for
+	 * the buffer object to be garbage collected. Uses Unsafe.invokeCleaner when
+	 * it is available; otherwise the memory is freed when the buffer is collected.
+	 */
+	private static void release(ByteBuffer buffer) {
+		if (CLEANER == null)
+			return;
+		try {
+			CLEANER.invoke(UNSAFE, buffer);
+		}
+		catch (ReflectiveOperationException ex) {
+			// fall back to the garbage collector
+		}
+	}
+
+	private static final Object UNSAFE;
+	private static final Method CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method cleaner = null;
+		try {
+			Class<?> type = Class.forName("sun.misc.Unsafe");
+			Field field = type.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			cleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+		}
+		catch (ReflectiveOperationException | RuntimeException ex) {
+			unsafe = null;
+			cleaner = null;
+		}
+		UNSAFE = unsafe;
+		CLEANER = cleaner;
+	}
+
+	/**
+	 * This class represents an inorder iterator over the keys.
+	 * The height of an AVL tree with fewer than 2^31 nodes is below 64,
+	 * so the stack of node indices never grows.
+	 */
+	private class OffHeapIterator implements Iterator<E> {
+
+		private final int[] stack = new int[64];
+		private int top;
+
+		OffHeapIterator() {
+			pushLeft(root);
+		}
+
+		private void pushLeft(int node) {
+			while (node != NIL) {
+				stack[top++] = node;
+				node = left(node);
+			}
+		}
+
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		public E next() {
+			if (top == 0) {
+				throw new NoSuchElementException("No more elements in the tree.");
+			}
+			checkOpen();
+			int node = stack[--top];
+			pushLeft(right(node));
+			return keyOf(node);
+		}
+	}
+}
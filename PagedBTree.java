@@ -0,0 +1,912 @@
+package project4;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents an ordered set of keys kept in a file, as a B+-tree of
+ * fixed size pages, for sets that do not fit in memory. It has the navigation
+ * methods of BST: add, remove, contains, floor, ceiling, higher, lower, first,
+ * last and iteration in ascending order.
+ *
+ * Keys have a fixed width described by a KeyLayout and are compared in their
+ * encoded form, 8 bytes at a time, like in OffHeapBST. An inner page holds up
+ * to a few hundred separator keys, so a lookup in a tree of a hundred million
+ * keys reads four pages. The keys are in the leaves, which are linked in both
+ * directions for iteration, floor and ceiling.
+ *
+ * Pages are read into a bounded pool of page frames in direct memory. When the
+ * pool is full the frame to reuse is chosen by the CLOCK algorithm: a frame
+ * that was used since the hand last passed it gets a second chance, so the
+ * upper levels of the tree, used by every lookup, stay in memory. Changed
+ * pages are written back when they leave the pool, or by flush() and close().
+ *
+ * Removing keys does not merge pages: a leaf is freed only once it is empty
+ * (its parent loses the reference to it), and freed pages are reused by later
+ * additions. The file is consistent after flush() or close(); a crash between
+ * two flushes can leave it damaged. Like BST, this class is not thread safe.
+ *
+ * The file starts with a header page:
+ * <pre>
+ * | magic | page size | key width | root | height | page count | first free page | size long |
+ * </pre>
+ * A leaf is | type | count | next | previous | keys... | and an inner page
+ * | type | count | count + 1 children | keys... |, every key padded to a multiple of 8 bytes.
+ *
+ * @param <E> type of the keys
+ */
+public class PagedBTree<E> implements Iterable<E>, AutoCloseable {
+
+	private static final int MAGIC = 0x42505431; //"BPT1"
+	private static final int NIL = 0; //page 0 is the header, so it is never a node
+	private static final int LEAF = 1; //page types
+	private static final int INNER = 2;
+	private static final int FREE = 3;
+	private static final int TYPE = 0; //offsets in a page
+	private static final int COUNT = 4;
+	private static final int NEXT = 8; //next leaf, or next free page
+	private static final int PREV = 12;
+	private static final int LEAF_KEYS = 16;
+	private static final int CHILDREN = 8;
+	private static final int MAX_HEIGHT = 64;
+
+	private final KeyLayout<E> layout;
+	private final FileChannel channel;
+	private final int pageSize;
+	private final int keyWords; //number of 8 byte words of a padded key
+	private final int keyBytes;
+	private final int leafCapacity; //keys in a leaf
+	private final int innerCapacity; //keys in an inner page, which has one more child
+	private final int innerKeys; //offset of the keys in an inner page
+	private final ByteBuffer probe; //the key being searched for, encoded
+	private final long[] probeWords; //the same key as words
+	private final byte[] scratch; //keys moved within or between pages
+
+	// pool of page frames
+	private final ByteBuffer[] frames;
+	private final int[] framePage; //page in each frame, NIL if the frame is unused
+	private final boolean[] referenced; //used since the clock hand last passed
+	private final boolean[] dirty; //changed since it was read
+	private int hand;
+	private int[] frameOf = new int[1024]; //1 + frame of every page, 0 if it is not in the pool
+	private long pageReads; //pages read from the file since the tree was opened
+
+	// header, written to page 0 by flush
+	private int root;
+	private int height; //number of inner levels above the leaves
+	private int pageCount;
+	private int freePages; //first page of the list of free pages
+	private long size;
+
+	// the pages and child indices on the path of the last descent
+	private final int[] path = new int[MAX_HEIGHT];
+	private final int[] pathIndex = new int[MAX_HEIGHT];
+	private boolean closed;
+
+	/**
+	 * Opens or creates the tree in the given file, with pages of 4 KB
+	 * and a pool of 4096 pages (16 MB).
+	 *
+	 * @param file file of the tree
+	 * @param layout encoding of the keys
+	 * @throws IOException if the file cannot be opened, or is not a tree of this layout
+	 * @throws NullPointerException if the file or the layout is null
+	 */
+	public PagedBTree(Path file, KeyLayout<E> layout) throws IOException, NullPointerException {
+		this(file, layout, 4096, 4096);
+	}
+
+	/**
+	 * Opens the tree in the given file, or creates it if the file does not
+	 * exist or is empty.
+	 *
+	 * @param file file of the tree
+	 * @param layout encoding of the keys
+	 * @param pageSize bytes of a page, a power of two; it has to be the one the file was created with
+	 * @param poolPages number of pages kept in memory
+	 * @throws IOException if the file cannot be opened, or is not a tree of this layout and page size
+	 * @throws NullPointerException if the file or the layout is null
+	 * @throws IllegalArgumentException if the page size is not a power of two, a page cannot hold
+	 *  four keys, or the pool has fewer than 4 pages
+	 */
+	public PagedBTree(Path file, KeyLayout<E> layout, int pageSize, int poolPages)
+			throws IOException, NullPointerException, IllegalArgumentException {
+		if (file == null || layout == null) {
+			throw new NullPointerException("File and key layout cannot be null.");
+		}
+		if (Integer.bitCount(pageSize) != 1 || pageSize < 64) {
+			throw new IllegalArgumentException("Page size " + pageSize + " is not a power of two of at least 64.");
+		}
+		this.layout = layout;
+		this.pageSize = pageSize;
+		this.keyWords = (layout.width() + 7) / 8;
+		this.keyBytes = keyWords * 8;
+		this.leafCapacity = (pageSize - LEAF_KEYS) / keyBytes;
+		// children from offset 8, then the keys from the next multiple of 8
+		int capacity = (pageSize - CHILDREN) / (keyBytes + Integer.BYTES) - 1;
+		while (align(CHILDREN + (capacity + 1) * Integer.BYTES) + capacity * keyBytes > pageSize) {
+			capacity--;
+		}
+		this.innerCapacity = capacity;
+		this.innerKeys = align(CHILDREN + (capacity + 1) * Integer.BYTES);
+		if (leafCapacity < 4 || innerCapacity < 4) {
+			throw new IllegalArgumentException("A page of " + pageSize + " bytes cannot hold four keys of "
+					+ layout.width() + " bytes.");
+		}
+		if (poolPages < 4) {
+			throw new IllegalArgumentException("The pool needs at least 4 pages.");
+		}
+		this.probe = ByteBuffer.allocate(keyBytes);
+		this.probeWords = new long[keyWords];
+		this.scratch = new byte[pageSize];
+		this.frames = new ByteBuffer[poolPages];
+		this.framePage = new int[poolPages];
+		this.referenced = new boolean[poolPages];
+		this.dirty = new boolean[poolPages];
+		for (int f = 0; f < poolPages; f++) {
+			frames[f] = ByteBuffer.allocateDirect(pageSize);
+		}
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			if (channel.size() == 0) {
+				reset();
+			}
+			else {
+				readHeader(file);
+			}
+		}
+		catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	/**
+	 * @return the number of keys in this tree, Integer.MAX_VALUE if there are more
+	 */
+	public int size() {
+		return (int) Math.min(size, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @return true if this tree contains no keys
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Counts the pages read from the file because they were not in the pool, the
+	 * difference between two calls is the I/O that the operations in between cost.
+	 * @return the number of pages read from the file since this tree was opened
+	 */
+	public long pageReads() {
+		return pageReads;
+	}
+
+	/**
+	 * Removes all the keys from this tree and shrinks the file to two pages.
+	 *
+	 * @throws UncheckedIOException if the file cannot be changed
+	 */
+	public void clear() throws UncheckedIOException {
+		checkOpen();
+		try {
+			Arrays.fill(framePage, NIL);
+			Arrays.fill(dirty, false);
+			Arrays.fill(referenced, false);
+			Arrays.fill(frameOf, 0);
+			channel.truncate(0);
+			reset();
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	/**
+	 * Writes the changed pages and the header to the file and syncs it.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void flush() throws IOException {
+		checkOpen();
+		for (int f = 0; f < frames.length; f++) {
+			if (dirty[f]) {
+				write(f);
+			}
+		}
+		writeHeader();
+		channel.force(true);
+	}
+
+	/**
+	 * Flushes the tree and closes the file. Any later operation throws IllegalStateException.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void close() throws IOException {
+		if (closed)
+			return;
+		try {
+			flush();
+		}
+		finally {
+			closed = true;
+			channel.close();
+		}
+	}
+
+	/**
+	 * Adds the specified key to this tree if it is not already present.
+	 *
+	 * @param key key to be added to this tree
+	 * @return true if this tree did not already contain the specified key
+	 * @throws NullPointerException if the key is null
+	 * @throws IllegalArgumentException if the key does not fit the layout
+	 * @throws UncheckedIOException if a page cannot be read or written
+	 */
+	public boolean add(E key) throws NullPointerException, IllegalArgumentException, UncheckedIOException {
+		if (key == null) {
+			throw new NullPointerException("Null values cannot be added to the tree.");
+		}
+		setProbe(key);
+		int leaf = descend();
+		int pos = search(probeWords, page(leaf), LEAF_KEYS, count(leaf));
+		if (pos >= 0) {
+			return false;
+		}
+		if (count(leaf) == leafCapacity) {
+			int right = splitLeaf(leaf);
+			long[] separator = words(page(right), LEAF_KEYS);
+			if (compare(probeWords, separator) > 0) {
+				leaf = right;
+			}
+			insertIntoLeaf(leaf);
+			insertSeparator(height - 1, separator, right);
+		}
+		else {
+			insertIntoLeaf(leaf);
+		}
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes the specified key from this tree if it is present.
+	 *
+	 * @param key key to be removed from this tree
+	 * @return true if the tree contained the key
+	 * @throws NullPointerException if the key is null
+	 * @throws UncheckedIOException if a page cannot be read or written
+	 */
+	public boolean remove(E key) throws NullPointerException, UncheckedIOException {
+		if (key == null) {
+			throw new NullPointerException("Cannot remove a null element from the tree.");
+		}
+		setProbe(key);
+		int leaf = descend();
+		int count = count(leaf);
+		int pos = search(probeWords, page(leaf), LEAF_KEYS, count);
+		if (pos < 0) {
+			return false;
+		}
+		ByteBuffer p = edit(leaf);
+		move(p, LEAF_KEYS + (pos + 1) * keyBytes, LEAF_KEYS + pos * keyBytes, (count - pos - 1) * keyBytes);
+		p.putInt(COUNT, count - 1);
+		size--;
+		if (count == 1 && height > 0) {
+			removeLeaf(leaf);
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if this tree contains the specified key.
+	 *
+	 * @param key key to be checked in the tree
+	 * @throws NullPointerException if the key is null
+	 * @throws UncheckedIOException if a page cannot be read
+	 */
+	public boolean contains(E key) throws NullPointerException, UncheckedIOException {
+		if (key == null) {
+			throw new NullPointerException("The tree does not contain null elements.");
+		}
+		setProbe(key);
+		int leaf = descend();
+		return search(probeWords, page(leaf), LEAF_KEYS, count(leaf)) >= 0;
+	}
+
+	/**
+	 * Returns the least key greater than or equal to the given key, or null if there is no such key.
+	 * @throws NullPointerException if the key is null
+	 * @throws UncheckedIOException if a page cannot be read
+	 */
+	public E ceiling(E key) throws NullPointerException, UncheckedIOException {
+		if (key == null) {
+			throw new NullPointerException("Cannot find the ceiling for null value.");
+		}
+		return above(key, true);
+	}
+
+	/**
+	 * Returns the least key strictly greater than the given key, or null if there is no such key.
+	 * @throws NullPointerException if the key is null
+	 * @throws UncheckedIOException if a page cannot be read
+	 */
+	public E higher(E key) throws NullPointerException, UncheckedIOException {
+		if (key == null) {
+			throw new NullPointerException("Cannot find the least higher element for null value.");
+		}
+		return above(key, false);
+	}
+
+	/**
+	 * Returns the greatest key less than or equal to the given key, or null if there is no such key.
+	 * @throws NullPointerException if the key is null
+	 * @throws UncheckedIOException if a page cannot be read
+	 */
+	public E floor(E key) throws NullPointerException, UncheckedIOException {
+		if (key == null) {
+			throw new NullPointerException("Cannot find the floor for null value.");
+		}
+		return below(key, true);
+	}
+
+	/**
+	 * Returns the greatest key strictly less than the given key, or null if there is no such key.
+	 * @throws NullPointerException if the key is null
+	 * @throws UncheckedIOException if a page cannot be read
+	 */
+	public E lower(E key) throws NullPointerException, UncheckedIOException {
+		if (key == null) {
+			throw new NullPointerException("Cannot find the closest lower element for null value.");
+		}
+		return below(key, false);
+	}
+
+	/**
+	 * Only the root can be an empty leaf, so the key that is not in the leaf
+	 * of the probe is the first key of the next leaf.
+	 */
+	private E above(E key, boolean inclusive) {
+		setProbe(key);
+		int leaf = descend();
+		int count = count(leaf);
+		int pos = search(probeWords, page(leaf), LEAF_KEYS, count);
+		int i = pos >= 0 ? (inclusive ? pos : pos + 1) : -pos - 1;
+		if (i < count) {
+			return keyAt(leaf, LEAF_KEYS + i * keyBytes);
+		}
+		int next = page(leaf).getInt(NEXT);
+		return next == NIL ? null : keyAt(next, LEAF_KEYS);
+	}
+
+	private E below(E key, boolean inclusive) {
+		setProbe(key);
+		int leaf = descend();
+		int pos = search(probeWords, page(leaf), LEAF_KEYS, count(leaf));
+		int i = pos >= 0 ? (inclusive ? pos : pos - 1) : -pos - 2;
+		if (i >= 0) {
+			return keyAt(leaf, LEAF_KEYS + i * keyBytes);
+		}
+		int prev = page(leaf).getInt(PREV);
+		return prev == NIL ? null : keyAt(prev, LEAF_KEYS + (count(prev) - 1) * keyBytes);
+	}
+
+	/**
+	 * Returns the first (lowest) key currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 * @throws UncheckedIOException if a page cannot be read
+	 */
+	public E first() throws NoSuchElementException, UncheckedIOException {
+		checkOpen();
+		if (size == 0) {
+			throw new NoSuchElementException("The tree is empty, no first element available.");
+		}
+		return keyAt(edge(false), LEAF_KEYS);
+	}
+
+	/**
+	 * Returns the last (highest) key currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 * @throws UncheckedIOException if a page cannot be read
+	 */
+	public E last() throws NoSuchElementException, UncheckedIOException {
+		checkOpen();
+		if (size == 0) {
+			throw new NoSuchElementException("The tree is empty, no last value available.");
+		}
+		int leaf = edge(true);
+		return keyAt(leaf, LEAF_KEYS + (count(leaf) - 1) * keyBytes);
+	}
+
+	/**
+	 * @return an iterator over the keys in this tree in ascending order
+	 */
+	public Iterator<E> iterator() {
+		checkOpen();
+		return new PagedIterator();
+	}
+
+	/**
+	 * Returns the keys in ascending order enclosed in square brackets [].
+	 */
+	@Override
+	public String toString() {
+		if (closed)
+			return "[closed]";
+		StringBuilder sb = new StringBuilder("[");
+		for (E e : this) {
+			if (sb.length() > 1)
+				sb.append(", ");
+			sb.append(layout.format(e));
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Goes down from the root to the leaf whose range holds the probe,
+	 * keeping the path for the changes that go up again.
+	 *
+	 * @return the leaf
+	 */
+	private int descend() {
+		int page = root;
+		for (int level = 0; level < height; level++) {
+			ByteBuffer p = page(page);
+			// the child after the last separator that is not above the probe
+			int pos = search(probeWords, p, innerKeys, p.getInt(COUNT));
+			int i = pos >= 0 ? pos + 1 : -pos - 1;
+			path[level] = page;
+			pathIndex[level] = i;
+			page = p.getInt(CHILDREN + i * Integer.BYTES);
+		}
+		return page;
+	}
+
+	/**
+	 * @param last true for the last leaf, false for the first one
+	 * @return the first or last leaf of the tree
+	 */
+	private int edge(boolean last) {
+		int page = root;
+		for (int level = 0; level < height; level++) {
+			ByteBuffer p = page(page);
+			page = p.getInt(CHILDREN + (last ? p.getInt(COUNT) : 0) * Integer.BYTES);
+		}
+		return page;
+	}
+
+	/**
+	 * Puts the probe in a leaf that has room for it.
+	 */
+	private void insertIntoLeaf(int leaf) {
+		ByteBuffer p = edit(leaf);
+		int count = p.getInt(COUNT);
+		int pos = -search(probeWords, p, LEAF_KEYS, count) - 1;
+		move(p, LEAF_KEYS + pos * keyBytes, LEAF_KEYS + (pos + 1) * keyBytes, (count - pos) * keyBytes);
+		putWords(p, LEAF_KEYS + pos * keyBytes, probeWords);
+		p.putInt(COUNT, count + 1);
+	}
+
+	/**
+	 * Moves the upper half of a full leaf to a new leaf linked after it.
+	 *
+	 * @return the new leaf, whose first key separates the two
+	 */
+	private int splitLeaf(int leaf) {
+		int right = allocate(); // before the leaf is read, allocating may evict it
+		ByteBuffer p = edit(leaf);
+		int count = p.getInt(COUNT);
+		int keep = count / 2;
+		int moved = count - keep;
+		int next = p.getInt(NEXT);
+		p.get(LEAF_KEYS + keep * keyBytes, scratch, 0, moved * keyBytes);
+		p.putInt(COUNT, keep);
+		p.putInt(NEXT, right);
+		ByteBuffer r = edit(right);
+		r.putInt(TYPE, LEAF);
+		r.putInt(COUNT, moved);
+		r.putInt(NEXT, next);
+		r.putInt(PREV, leaf);
+		r.put(LEAF_KEYS, scratch, 0, moved * keyBytes);
+		if (next != NIL) {
+			edit(next).putInt(PREV, right);
+		}
+		return right;
+	}
+
+	/**
+	 * Adds a separator and the page on its right to the inner page of the
+	 * given level of the path, splitting the full pages on the way up.
+	 */
+	private void insertSeparator(int level, long[] separator, int right) {
+		while (level >= 0) {
+			int page = path[level];
+			if (count(page) < innerCapacity) {
+				insertIntoInner(page, separator, right);
+				return;
+			}
+			long[] promoted = new long[keyWords];
+			int sibling = splitInner(page, promoted);
+			insertIntoInner(compare(separator, promoted) < 0 ? page : sibling, separator, right);
+			separator = promoted;
+			right = sibling;
+			level--;
+		}
+		// the root was split
+		int page = allocate();
+		ByteBuffer p = edit(page);
+		p.putInt(TYPE, INNER);
+		p.putInt(COUNT, 1);
+		p.putInt(CHILDREN, root);
+		p.putInt(CHILDREN + Integer.BYTES, right);
+		putWords(p, innerKeys, separator);
+		root = page;
+		height++;
+	}
+
+	private void insertIntoInner(int page, long[] separator, int right) {
+		ByteBuffer p = edit(page);
+		int count = p.getInt(COUNT);
+		int pos = -search(separator, p, innerKeys, count) - 1;
+		move(p, innerKeys + pos * keyBytes, innerKeys + (pos + 1) * keyBytes, (count - pos) * keyBytes);
+		int child = CHILDREN + (pos + 1) * Integer.BYTES;
+		move(p, child, child + Integer.BYTES, (count - pos) * Integer.BYTES);
+		putWords(p, innerKeys + pos * keyBytes, separator);
+		p.putInt(child, right);
+		p.putInt(COUNT, count + 1);
+	}
+
+	/**
+	 * Moves the upper half of a full inner page to a new page. The middle
+	 * key goes up to the parent instead of staying in either page.
+	 *
+	 * @param promoted receives the middle key
+	 * @return the new page
+	 */
+	private int splitInner(int page, long[] promoted) {
+		int right = allocate();
+		ByteBuffer p = edit(page);
+		int count = p.getInt(COUNT);
+		int mid = count / 2;
+		int movedKeys = count - mid - 1;
+		int keyLength = movedKeys * keyBytes;
+		for (int w = 0; w < keyWords; w++) {
+			promoted[w] = p.getLong(innerKeys + mid * keyBytes + w * 8);
+		}
+		p.get(innerKeys + (mid + 1) * keyBytes, scratch, 0, keyLength);
+		p.get(CHILDREN + (mid + 1) * Integer.BYTES, scratch, keyLength, (movedKeys + 1) * Integer.BYTES);
+		p.putInt(COUNT, mid);
+		ByteBuffer r = edit(right);
+		r.putInt(TYPE, INNER);
+		r.putInt(COUNT, movedKeys);
+		r.put(innerKeys, scratch, 0, keyLength);
+		r.put(CHILDREN, scratch, keyLength, (movedKeys + 1) * Integer.BYTES);
+		return right;
+	}
+
+	/**
+	 * Frees an empty leaf and drops it from its parent. A parent that loses
+	 * its only child is freed too, and a root with a single child is
+	 * replaced by that child.
+	 */
+	private void removeLeaf(int leaf) {
+		ByteBuffer p = page(leaf);
+		int next = p.getInt(NEXT);
+		int prev = p.getInt(PREV);
+		if (prev != NIL) {
+			edit(prev).putInt(NEXT, next);
+		}
+		if (next != NIL) {
+			edit(next).putInt(PREV, prev);
+		}
+		release(leaf);
+		int level = height - 1;
+		while (level >= 0) {
+			int parent = path[level];
+			int i = pathIndex[level];
+			ByteBuffer q = edit(parent);
+			int count = q.getInt(COUNT);
+			if (count > 0) {
+				// the range of the child goes to its neighbour with the separator between them
+				int k = i > 0 ? i - 1 : 0;
+				move(q, innerKeys + (k + 1) * keyBytes, innerKeys + k * keyBytes, (count - k - 1) * keyBytes);
+				int child = CHILDREN + i * Integer.BYTES;
+				move(q, child + Integer.BYTES, child, (count - i) * Integer.BYTES);
+				q.putInt(COUNT, count - 1);
+				break;
+			}
+			release(parent);
+			level--;
+		}
+		if (level < 0) {
+			// every page on the path is gone, the tree is empty
+			root = allocate();
+			edit(root).putInt(TYPE, LEAF);
+			height = 0;
+			return;
+		}
+		while (height > 0 && count(root) == 0) {
+			int child = page(root).getInt(CHILDREN);
+			release(root);
+			root = child;
+			height--;
+		}
+	}
+
+	/**
+	 * @return a free page, or a new one at the end of the file, filled with zeros
+	 */
+	private int allocate() {
+		int page;
+		if (freePages != NIL) {
+			page = freePages;
+			freePages = page(page).getInt(NEXT);
+		}
+		else {
+			page = pageCount++;
+			if (pageCount > frameOf.length) {
+				frameOf = Arrays.copyOf(frameOf, frameOf.length * 2);
+			}
+		}
+		ByteBuffer p = edit(page);
+		for (int i = 0; i < pageSize; i += 8) {
+			p.putLong(i, 0L);
+		}
+		return page;
+	}
+
+	private void release(int page) {
+		ByteBuffer p = edit(page);
+		p.putInt(TYPE, FREE);
+		p.putInt(NEXT, freePages);
+		freePages = page;
+	}
+
+	private int count(int page) {
+		return page(page).getInt(COUNT);
+	}
+
+	/**
+	 * Returns the frame of a page for reading. The buffer may be reused for
+	 * another page by the next call of page or edit, so it is never kept.
+	 *
+	 * @throws UncheckedIOException if the page cannot be read
+	 */
+	private ByteBuffer page(int page) throws UncheckedIOException {
+		checkOpen();
+		int f = frameOf[page] - 1;
+		if (f < 0) {
+			f = load(page);
+		}
+		referenced[f] = true;
+		return frames[f];
+	}
+
+	/**
+	 * Returns the frame of a page that is going to be changed.
+	 */
+	private ByteBuffer edit(int page) throws UncheckedIOException {
+		ByteBuffer p = page(page);
+		dirty[frameOf[page] - 1] = true;
+		return p;
+	}
+
+	/**
+	 * Reads a page into a frame chosen by the clock: the hand skips the
+	 * frames used since it last passed them and clears their mark.
+	 */
+	private int load(int page) {
+		while (referenced[hand]) {
+			referenced[hand] = false;
+			hand = (hand + 1) % frames.length;
+		}
+		int f = hand;
+		hand = (hand + 1) % frames.length;
+		try {
+			if (framePage[f] != NIL) {
+				if (dirty[f]) {
+					write(f);
+				}
+				frameOf[framePage[f]] = 0;
+			}
+			ByteBuffer frame = frames[f].clear();
+			long position = (long) page * pageSize;
+			while (frame.hasRemaining()) {
+				int read = channel.read(frame, position + frame.position());
+				if (read < 0) {
+					break; // a new page after the end of the file
+				}
+			}
+			while (frame.hasRemaining()) {
+				frame.put((byte) 0);
+			}
+			frame.clear();
+			pageReads++;
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		framePage[f] = page;
+		frameOf[page] = f + 1;
+		dirty[f] = false;
+		return f;
+	}
+
+	private void write(int f) throws IOException {
+		ByteBuffer frame = frames[f].duplicate().clear();
+		long position = (long) framePage[f] * pageSize;
+		while (frame.hasRemaining()) {
+			channel.write(frame, position + frame.position());
+		}
+		dirty[f] = false;
+	}
+
+	/**
+	 * Starts an empty tree: the header and an empty leaf as the root.
+	 */
+	private void reset() throws IOException {
+		size = 0;
+		height = 0;
+		freePages = NIL;
+		pageCount = 1;
+		root = allocate();
+		edit(root).putInt(TYPE, LEAF);
+		flush();
+	}
+
+	private void readHeader(Path file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(40);
+		while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+		}
+		if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+			throw new IOException(file + " is not a paged tree.");
+		}
+		if (header.getInt(4) != pageSize || header.getInt(8) != layout.width()) {
+			throw new IOException(file + " has pages of " + header.getInt(4) + " bytes and keys of "
+					+ header.getInt(8) + " bytes.");
+		}
+		root = header.getInt(12);
+		height = header.getInt(16);
+		pageCount = header.getInt(20);
+		freePages = header.getInt(24);
+		size = header.getLong(32);
+		frameOf = new int[Math.max(1024, Integer.highestOneBit(pageCount) * 2)];
+	}
+
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(40);
+		header.putInt(MAGIC).putInt(pageSize).putInt(layout.width()).putInt(root).putInt(height)
+				.putInt(pageCount).putInt(freePages).putInt(0).putLong(size).flip();
+		while (header.hasRemaining()) {
+			channel.write(header, header.position());
+		}
+	}
+
+	/**
+	 * Encodes the key into the probe and splits it into words.
+	 */
+	private void setProbe(E key) {
+		checkOpen();
+		// clear the padding so it compares equal to the padding of the pages
+		probe.putLong(keyBytes - 8, 0L);
+		layout.write(key, probe, 0);
+		for (int w = 0; w < keyWords; w++) {
+			probeWords[w] = probe.getLong(w * 8);
+		}
+	}
+
+	/**
+	 * Binary search of the words among the count keys that start at the given offset.
+	 *
+	 * @return the index of the key, or -(insertion point) - 1 if it is not there
+	 */
+	private int search(long[] words, ByteBuffer p, int offset, int count) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(words, p, offset + mid * keyBytes);
+			if (cmp > 0)
+				low = mid + 1;
+			else if (cmp < 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Compares words with an encoded key as unsigned big endian words.
+	 */
+	private int compare(long[] words, ByteBuffer p, int offset) {
+		for (int w = 0; w < keyWords; w++) {
+			int cmp = Long.compareUnsigned(words[w], p.getLong(offset + w * 8));
+			if (cmp != 0)
+				return cmp;
+		}
+		return 0;
+	}
+
+	private int compare(long[] a, long[] b) {
+		return Arrays.compareUnsigned(a, b);
+	}
+
+	private long[] words(ByteBuffer p, int offset) {
+		long[] words = new long[keyWords];
+		for (int w = 0; w < keyWords; w++) {
+			words[w] = p.getLong(offset + w * 8);
+		}
+		return words;
+	}
+
+	private void putWords(ByteBuffer p, int offset, long[] words) {
+		for (int w = 0; w < keyWords; w++) {
+			p.putLong(offset + w * 8, words[w]);
+		}
+	}
+
+	/**
+	 * Moves bytes within a page, the two ranges may overlap.
+	 */
+	private void move(ByteBuffer p, int from, int to, int length) {
+		if (length > 0) {
+			p.get(from, scratch, 0, length);
+			p.put(to, scratch, 0, length);
+		}
+	}
+
+	private E keyAt(int page, int offset) {
+		return layout.read(page(page), offset);
+	}
+
+	private static int align(int offset) {
+		return (offset + 7) & ~7;
+	}
+
+	private void checkOpen() throws IllegalStateException {
+		if (closed) {
+			throw new IllegalStateException("The tree has been closed.");
+		}
+	}
+
+	/**
+	 * This class represents an iterator over the keys, that follows the links
+	 * between the leaves. The tree must not be changed while it is used.
+	 */
+	private class PagedIterator implements Iterator<E> {
+
+		private int leaf;
+		private int index;
+
+		PagedIterator() {
+			leaf = size == 0 ? NIL : edge(false);
+		}
+
+		public boolean hasNext() {
+			return leaf != NIL;
+		}
+
+		public E next() {
+			if (leaf == NIL) {
+				throw new NoSuchElementException("No more elements in the tree.");
+			}
+			E key = keyAt(leaf, LEAF_KEYS + index * keyBytes);
+			if (++index == count(leaf)) {
+				leaf = page(leaf).getInt(NEXT);
+				index = 0;
+			}
+			return key;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package project4;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * This class represents an immutable, persistent version of a balanced
+ * Binary Search Tree. It never changes once it is created: with and without
+ * return a new version that copies only the O(logN) nodes on the path to the
+ * change and shares every other node with this version.
+ * All the read operations of BST (contains, floor, ceiling, get, rank,
+ * iterators, streams...) can be used on it, from any number of threads.
+ *
+ * A persistent tree is also what BST.snapshot() returns, so a long running
+ * reader can walk a stable version while the original tree keeps changing.
+ * The versions derived from a snapshot keep the shape of the original tree,
+ * they are only as balanced as that tree was.
+ *
+ * @param <E>
+ */
+public class PersistentBST<E extends Comparable<E>> extends AVLBST<E> {
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the natural ordering of its elements.
+	 */
+	public PersistentBST () {
+		super();
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator.
+	 */
+	public PersistentBST (Comparator<E> comparator) {
+		super(comparator);
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator,
+	 * that keeps the prefix of every key in its node.
+	 */
+	public PersistentBST (Comparator<E> comparator, KeyPrefix<? super E> keyPrefix) {
+		super(comparator, keyPrefix);
+	}
+
+	/**
+	 * Constructs a version that shares the given nodes. The new version gets
+	 * its own owner token, so none of the shared nodes can be changed through it.
+	 *
+	 * @param root root of the shared nodes
+	 * @param comparator ordering of the elements, null for the natural ordering
+	 * @param keyPrefix prefix of the keys that the nodes keep, null if there is none
+	 */
+	PersistentBST (BSTNode root, Comparator<E> comparator, KeyPrefix<? super E> keyPrefix) {
+		super(comparator, keyPrefix);
+		this.root = root;
+	}
+
+	/**
+	 * Returns a version of this tree that also contains the given element.
+	 * This version is not changed. If it already contains the element, no node is copied.
+	 *
+	 * @param data element to be added
+	 * @return the new version, or this one if it already contains the element
+	 * @throws NullPointerException if the element is null
+	 */
+	public PersistentBST<E> with (E data) throws NullPointerException {
+		PersistentBST<E> edit = new PersistentBST<>(root, comparator, keyPrefix);
+		return edit.addToNewVersion(data) ? edit.publish() : this;
+	}
+
+	/**
+	 * Returns a version of this tree that does not contain the given element.
+	 * This version is not changed. If it does not contain the element, no node is copied.
+	 *
+	 * @param o element to be removed
+	 * @return the new version, or this one if it does not contain the element
+	 * @throws NullPointerException if the element is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 */
+	public PersistentBST<E> without (Object o) throws NullPointerException, ClassCastException {
+		PersistentBST<E> edit = new PersistentBST<>(root, comparator, keyPrefix);
+		return edit.removeFromNewVersion(o) ? edit.publish() : this;
+	}
+
+	/**
+	 * Changes a version that has not been published yet. The nodes it copies
+	 * belong to that version only.
+	 */
+	private boolean addToNewVersion (E data) {
+		return super.add(data);
+	}
+
+	private boolean removeFromNewVersion (Object o) {
+		return super.remove(o);
+	}
+
+	/**
+	 * Moves the nodes of a changed version to the version that is returned.
+	 * Every node keeps a reference to the tree that created it, so if that
+	 * tree were the version, a node would keep its version and through the
+	 * version's root all the older nodes alive, and no version could ever be
+	 * collected. The tree that created the nodes is left empty instead.
+	 *
+	 * @return the version with the nodes of this tree
+	 */
+	private PersistentBST<E> publish () {
+		PersistentBST<E> next = new PersistentBST<>(root, comparator, keyPrefix);
+		root = null;
+		return next;
+	}
+
+	/**
+	 * Trees built from this one, like the result of union, are persistent too.
+	 */
+	@Override
+	protected BST<E> newTree () {
+		return new PersistentBST<>(comparator, keyPrefix);
+	}
+
+	/**
+	 * A snapshot of an immutable tree is the tree itself.
+	 */
+	@Override
+	public PersistentBST<E> snapshot () {
+		return this;
+	}
+
+	/**
+	 * Not supported, use with(E) which returns a new version.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean add (E data) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("A persistent tree cannot be changed, use with(E).");
+	}
+
+	/**
+	 * Not supported, use without(Object) which returns a new version.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public boolean remove (Object o) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("A persistent tree cannot be changed, use without(Object).");
+	}
+
+	/**
+	 * Not supported, a persistent tree cannot give away its nodes.
+	 * AVLBST.join can be used with persistent trees, it does not change them.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public AVLBST<E> split (E key) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("A persistent tree cannot be changed.");
+	}
+
+	/**
+	 * Not supported, a snapshot file can be loaded into an AVLBST, whose
+	 * snapshot() is then a persistent version of it.
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void load (Path file, KeyCodec<? extends E> codec) throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("A persistent tree cannot be changed.");
+	}
+
+	/**
+	 * Not supported, an empty version is new PersistentBST().
+	 * @throws UnsupportedOperationException always
+	 */
+	@Override
+	public void clear () throws UnsupportedOperationException {
+		throw new UnsupportedOperationException("A persistent tree cannot be changed.");
+	}
+}
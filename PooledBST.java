@@ -0,0 +1,546 @@
+package project4;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class represents a balanced (AVL) Binary Search Tree of generic type
+ * whose nodes are stored in a pool of parallel arrays instead of BSTNode objects.
+ * A node is an index into the arrays holding its element, left child, right child,
+ * height and subtree size. Index 0 is the null node. The slots of removed nodes are
+ * kept in a free list and reused by the following adds.
+ *
+ * Descending the tree reads a few int arrays that stay close together in memory,
+ * and a node costs 17 bytes plus its element instead of a whole BSTNode object.
+ * The public operations are the same as the ones of BST.
+ *
+ * @param <E>
+ */
+public class PooledBST<E extends Comparable<E>> implements Iterable<E> {
+
+	private static final int NIL = 0; //index of the null node
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private Object[] data; //element of every node
+	private int[] left; //index of the left child of every node
+	private int[] right; //index of the right child of every node
+	private int[] size; //number of nodes in the subtree of every node, 0 for NIL
+	private byte[] height; //height of every node, 1 for a leaf and 0 for NIL
+	private int root = NIL; //index of the root node
+	private int next = 1; //first slot that has never been used
+	private int free = NIL; //first slot of the free list, linked through left[]
+	protected Comparator<E> comparator; //comparator object to overwrite the
+	//natural ordering of the elements
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the natural ordering of its elements.
+	 */
+	public PooledBST() {
+		this(DEFAULT_CAPACITY, null);
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator.
+	 */
+	public PooledBST(Comparator<E> comparator) {
+		this(DEFAULT_CAPACITY, comparator);
+	}
+
+	/**
+	 * Constructs a new, empty tree with room for the given number of elements.
+	 *
+	 * @param capacity number of elements the tree can hold before the pool grows
+	 * @param comparator ordering of the elements, null for the natural ordering
+	 * @throws IllegalArgumentException if the capacity is negative
+	 */
+	public PooledBST(int capacity, Comparator<E> comparator) throws IllegalArgumentException {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative.");
+		}
+		this.data = new Object[capacity + 1];
+		this.left = new int[capacity + 1];
+		this.right = new int[capacity + 1];
+		this.size = new int[capacity + 1];
+		this.height = new byte[capacity + 1];
+		this.comparator = comparator;
+	}
+
+	/**
+	 * Compares two elements with the comparator of this tree, or their
+	 * natural ordering if there is none.
+	 */
+	private int compare(E a, E b) {
+		if (comparator == null)
+			return a.compareTo(b);
+		return comparator.compare(a, b);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E data(int node) {
+		return (E) data[node];
+	}
+
+	/**
+	 * @return the number of elements in this tree
+	 */
+	public int size() {
+		return size[root];
+	}
+
+	/**
+	 * @return true if this tree contains no elements
+	 */
+	public boolean isEmpty() {
+		return root == NIL;
+	}
+
+	/**
+	 * @return the height of the tree, 0 if the tree is empty
+	 */
+	public int height() {
+		return height[root];
+	}
+
+	/**
+	 * Removes all the elements from this tree. The pool is kept for reuse.
+	 */
+	public void clear() {
+		Arrays.fill(data, 0, next, null); // let the elements be garbage collected
+		root = NIL;
+		next = 1;
+		free = NIL;
+	}
+
+	/**
+	 * Adds the specified element to this tree if it is not already present.
+	 * If this tree already contains the element, the call leaves the
+	 * tree unchanged and returns false.
+	 *
+	 * @param e element to be added to this tree
+	 * @return true if this tree did not already contain the specified element
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public boolean add(E e) throws NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Null values cannot be added to the tree.");
+		}
+		int before = size();
+		root = add(root, e);
+		return size() != before;
+	}
+
+	private int add(int node, E e) {
+		if (node == NIL) {
+			return newNode(e);
+		}
+		int cmp = compare(e, data(node));
+		// the child is stored after the call because adding may grow the pool
+		if (cmp < 0) {
+			int child = add(left[node], e);
+			left[node] = child;
+		}
+		else if (cmp > 0) {
+			int child = add(right[node], e);
+			right[node] = child;
+		}
+		else {
+			return node; // already in the tree
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Removes the specified element from this tree if it is present.
+	 *
+	 * @param o object to be removed from this tree
+	 * @return true if there was an element equal to the object, false otherwise
+	 * @throws NullPointerException if the object is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("Cannot remove a null element from the tree.");
+		}
+		int before = size();
+		root = remove(root, (E) o);
+		return size() != before;
+	}
+
+	private int remove(int node, E e) {
+		if (node == NIL) {
+			return NIL;
+		}
+		int cmp = compare(e, data(node));
+		if (cmp < 0) {
+			left[node] = remove(left[node], e);
+		}
+		else if (cmp > 0) {
+			right[node] = remove(right[node], e);
+		}
+		else if (left[node] == NIL || right[node] == NIL) {
+			int child = left[node] == NIL ? right[node] : left[node];
+			freeNode(node);
+			return child;
+		}
+		else {
+			// replace by the smallest element of the right subtree
+			int successor = right[node];
+			while (left[successor] != NIL) {
+				successor = left[successor];
+			}
+			data[node] = data[successor];
+			right[node] = remove(right[node], data(successor));
+		}
+		return rebalance(node);
+	}
+
+	/**
+	 * Returns true if this tree contains the specified element.
+	 *
+	 * @param o object to be checked in the tree
+	 * @return true if the tree contains the object
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the specified object cannot be compared with the elements currently in the tree
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("The tree does not contain null elements.");
+		}
+		E e = (E) o;
+		int node = root;
+		while (node != NIL) {
+			int cmp = compare(e, data(node));
+			if (cmp == 0)
+				return true;
+			node = cmp < 0 ? left[node] : right[node];
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the least element greater than or equal to e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E ceiling(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the ceiling for null value.");
+		}
+		return data(above(e, true));
+	}
+
+	/**
+	 * Returns the least element strictly greater than e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E higher(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the least higher element for null value.");
+		}
+		return data(above(e, false));
+	}
+
+	/**
+	 * Returns the greatest element less than or equal to e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E floor(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the floor for null value.");
+		}
+		return data(below(e, true));
+	}
+
+	/**
+	 * Returns the greatest element strictly less than e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public E lower(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the closest lower element for null value.");
+		}
+		return data(below(e, false));
+	}
+
+	/**
+	 * Descends from the root and remembers the last node whose element is
+	 * greater than (or equal to, if inclusive) e. Returns NIL if there is none.
+	 */
+	private int above(E e, boolean inclusive) {
+		int result = NIL;
+		int node = root;
+		while (node != NIL) {
+			int cmp = compare(e, data(node));
+			if (cmp < 0 || (inclusive && cmp == 0)) {
+				result = node;
+				node = left[node];
+			}
+			else
+				node = right[node];
+		}
+		return result;
+	}
+
+	/**
+	 * Descends from the root and remembers the last node whose element is
+	 * less than (or equal to, if inclusive) e. Returns NIL if there is none.
+	 */
+	private int below(E e, boolean inclusive) {
+		int result = NIL;
+		int node = root;
+		while (node != NIL) {
+			int cmp = compare(e, data(node));
+			if (cmp > 0 || (inclusive && cmp == 0)) {
+				result = node;
+				node = right[node];
+			}
+			else
+				node = left[node];
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the first (lowest) element currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E first() throws NoSuchElementException {
+		int node = root;
+		if (node == NIL) {
+			throw new NoSuchElementException("The tree is empty, no first element available.");
+		}
+		while (left[node] != NIL) {
+			node = left[node];
+		}
+		return data(node);
+	}
+
+	/**
+	 * Returns the last (highest) element currently in this tree.
+	 * @throws NoSuchElementException if the tree is empty
+	 */
+	public E last() throws NoSuchElementException {
+		int node = root;
+		if (node == NIL) {
+			throw new NoSuchElementException("The tree is empty, no last value available.");
+		}
+		while (right[node] != NIL) {
+			node = right[node];
+		}
+		return data(node);
+	}
+
+	/**
+	 * Returns the element at the specified position in this tree, in the
+	 * order of the iterator.
+	 * @param index zero based position of the element
+	 * @throws IndexOutOfBoundsException if the index is out of range (index < 0 || index >= size())
+	 */
+	public E get(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of range for size " + size() + ".");
+		}
+		int node = root;
+		while (true) {
+			int leftSize = size[left[node]];
+			if (index < leftSize) {
+				node = left[node];
+			}
+			else if (index > leftSize) {
+				index -= leftSize + 1;
+				node = right[node];
+			}
+			else
+				return data(node);
+		}
+	}
+
+	/**
+	 * Returns the number of elements in this tree that are strictly less than e.
+	 * @param e the value to match
+	 * @throws NullPointerException if the specified element is null
+	 */
+	public int rank(E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the rank of null value.");
+		}
+		int rank = 0;
+		int node = root;
+		while (node != NIL) {
+			if (compare(e, data(node)) <= 0) {
+				node = left[node];
+			}
+			else {
+				rank += size[left[node]] + 1;
+				node = right[node];
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * @return an iterator over the elements in this tree in order of the inorder traversal
+	 */
+	public Iterator<E> iterator() {
+		return new PooledIterator();
+	}
+
+	/**
+	 * Returns the elements in inorder traversal enclosed in square brackets [].
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (E e : this) {
+			if (sb.length() > 1)
+				sb.append(", ");
+			sb.append(e);
+		}
+		return sb.append(']').toString();
+	}
+
+	/**
+	 * Takes a slot from the free list, or the next unused slot, and
+	 * initializes it as a leaf.
+	 */
+	private int newNode(E e) {
+		int node;
+		if (free != NIL) {
+			node = free;
+			free = left[node];
+		}
+		else {
+			if (next == data.length) {
+				grow();
+			}
+			node = next++;
+		}
+		data[node] = e;
+		left[node] = NIL;
+		right[node] = NIL;
+		size[node] = 1;
+		height[node] = 1;
+		return node;
+	}
+
+	/**
+	 * Puts a removed slot on the free list.
+	 */
+	private void freeNode(int node) {
+		data[node] = null; // let the element be garbage collected
+		left[node] = free;
+		free = node;
+	}
+
+	private void grow() {
+		int capacity = data.length + (data.length >> 1) + 1;
+		data = Arrays.copyOf(data, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		size = Arrays.copyOf(size, capacity);
+		height = Arrays.copyOf(height, capacity);
+	}
+
+	/**
+	 * Updates the height and size of a node and performs the rotation
+	 * needed if the heights of its subtrees differ by two.
+	 */
+	private int rebalance(int node) {
+		update(node);
+		int balance = height[right[node]] - height[left[node]];
+		// left subtree is too high
+		if (balance == -2) {
+			int l = left[node];
+			if (height[left[l]] >= height[right[l]]) {
+				return rotateLL(node);
+			}
+			return rotateLR(node);
+		}
+		// right subtree is too high
+		if (balance == 2) {
+			int r = right[node];
+			if (height[right[r]] >= height[left[r]]) {
+				return rotateRR(node);
+			}
+			return rotateRL(node);
+		}
+		return node;
+	}
+
+	private int rotateLL(int a) {
+		int b = left[a];
+		left[a] = right[b];
+		right[b] = a;
+		update(a);
+		update(b);
+		return b;
+	}
+
+	private int rotateLR(int a) {
+		left[a] = rotateRR(left[a]);
+		return rotateLL(a);
+	}
+
+	private int rotateRL(int a) {
+		right[a] = rotateLL(right[a]);
+		return rotateRR(a);
+	}
+
+	private int rotateRR(int a) {
+		int b = right[a];
+		right[a] = left[b];
+		left[b] = a;
+		update(a);
+		update(b);
+		return b;
+	}
+
+	private void update(int node) {
+		int l = left[node];
+		int r = right[node];
+		height[node] = (byte) (1 + Math.max(height[l], height[r]));
+		size[node] = 1 + size[l] + size[r];
+	}
+
+	/**
+	 * This class represents an inorder iterator over the pool.
+	 * The height of an AVL tree with fewer than 2^31 nodes is below 64,
+	 * so the stack of node indices never grows.
+	 */
+	private class PooledIterator implements Iterator<E> {
+
+		private final int[] stack = new int[64];
+		private int top;
+
+		PooledIterator() {
+			pushLeft(root);
+		}
+
+		private void pushLeft(int node) {
+			while (node != NIL) {
+				stack[top++] = node;
+				node = left[node];
+			}
+		}
+
+		public boolean hasNext() {
+			return top > 0;
+		}
+
+		public E next() {
+			if (top == 0) {
+				throw new NoSuchElementException("No more elements in the tree.");
+			}
+			int node = stack[--top];
+			pushLeft(right[node]);
+			return data(node);
+		}
+	}
+}
@@ -0,0 +1,491 @@
+package project4;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * This class represents a self adjusting (splay) Binary Search Tree of generic type.
+ * Every add, remove and lookup (contains, floor, ceiling, higher, lower) moves
+ * the last node it reaches to the root with the left left and right right
+ * rotations of the mountain, and halves the depth of the nodes on the way.
+ * Elements that are looked up often stay near the root, so when a few
+ * elements get most of the lookups they are found after a few comparisons,
+ * and any sequence of operations costs O(logN) per operation on average.
+ *
+ * The splay is done top-down in one loop: the nodes on the path are hung
+ * into a left and a right tree on the way down and joined below the new root
+ * at the end, so a tree that degenerated into a list cannot overflow the stack.
+ * The size, content hash and height of the changed nodes are then recomputed
+ * from the lowest one up, without reading the elements again: the hash of
+ * the element of a node is its subtree hash minus the hashes of its children,
+ * taken before the node is changed. Nodes that are shared with a snapshot are copied
+ * before they are changed, as in every other tree.
+ *
+ * Since a lookup changes the shape of the tree, it must not be called while
+ * an iterator, a cursor or a stream of the same tree is in use, and the tree
+ * cannot be read from several threads at the same time; a snapshot() can.
+ * first, last, get and rank do not splay.
+ *
+ * @param <E>
+ */
+public class SplayBST<E extends Comparable<E>> extends BST<E> {
+
+	// the nodes hung into the left and right trees by the splay, from the top down
+	private final Spine leftSpine = new Spine();
+	private final Spine rightSpine = new Spine();
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the natural ordering of its elements.
+	 */
+	public SplayBST () {
+		super();
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator.
+	 */
+	public SplayBST (Comparator<E> comparator) {
+		super(comparator);
+	}
+
+	/**
+	 * Constructs a new, empty tree, sorted according to the specified comparator,
+	 * that keeps the prefix of every key in its node.
+	 *
+	 * @param comparator the ordering of the elements, null for the natural ordering
+	 * @param keyPrefix the prefix of the keys, it has to agree with the ordering
+	 */
+	public SplayBST (Comparator<E> comparator, KeyPrefix<? super E> keyPrefix) {
+		super(comparator, keyPrefix);
+	}
+
+	/**
+	 * Constructs a new tree containing the elements in the specified collection,
+	 * sorted according to the natural ordering of its elements.
+	 *
+	 * @param collection the elements the new tree will be constructed from
+	 *
+	 * @throws NullPointerException if the collection or one of its elements is null
+	 */
+	public SplayBST (E[] collection) throws NullPointerException {
+		super(collection);
+	}
+
+	/**
+	 * Constructs a new tree containing the elements in the specified collection,
+	 * sorted according to the natural ordering of its elements.
+	 *
+	 * @param collection the elements the new tree will be constructed from
+	 *
+	 * @throws NullPointerException if the collection or one of its elements is null
+	 */
+	public SplayBST (Collection<? extends E> collection) throws NullPointerException {
+		super(collection);
+	}
+
+	/**
+	 * Adds the specified element to this tree if it is not already present.
+	 * The tree is splayed at the element and the new node becomes the root,
+	 * with the old root and one of its subtrees below it.
+	 * If this tree already contains the element, it is moved to the root and
+	 * the call returns false.
+	 *
+	 * @param data element to be added to this tree
+	 *
+	 * @return true if this tree did not already contain the specified element
+	 *
+	 * @throws NullPointerException if the specified element is null
+	 */
+	@Override
+	public boolean add (E data) throws NullPointerException {
+		if (data == null) {
+			throw new NullPointerException("Null values cannot be added to the tree.");
+		}
+		if (root == null) {
+			root = new BSTNode(data);
+			return true;
+		}
+		long prefix = prefixOf(data);
+		BSTNode top = splay(root, data, prefix);
+		root = top;
+		int cmp = compare(data, prefix, top);
+		if (cmp == 0) {
+			return false;
+		}
+		BSTNode node = new BSTNode(data);
+		if (cmp < 0) {
+			node.left = top.left;
+			node.right = top;
+			top.left = null;
+		}
+		else {
+			node.right = top.right;
+			node.left = top;
+			top.right = null;
+		}
+		update(top);
+		update(node);
+		root = node;
+		return true;
+	}
+
+	/**
+	 * Removes the specified element from this tree if it is present.
+	 * The tree is splayed at the element, then its left subtree is splayed
+	 * at its greatest element, which becomes the root in its place.
+	 *
+	 * @param o object to be removed from this tree
+	 * @return true if there was an element equal to the object, false otherwise
+	 * @throws NullPointerException if the object is null
+	 * @throws ClassCastException if the object cannot be compared with the elements of the tree
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove (Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("Cannot remove a null element from the tree.");
+		}
+		if (root == null) {
+			return false;
+		}
+		E e = (E) o;
+		long prefix = prefixOf(e);
+		BSTNode top = splay(root, e, prefix);
+		root = top;
+		if (compare(e, prefix, top) != 0) {
+			return false;
+		}
+		if (top.left == null) {
+			root = top.right;
+			return true;
+		}
+		// every element of the left subtree is less than e, so its greatest one comes up
+		BSTNode left = splay(top.left, e, prefix);
+		left.right = top.right;
+		update(left);
+		root = left;
+		return true;
+	}
+
+	/**
+	 * Returns true if this tree contains the specified element,
+	 * and moves it (or the last node compared with it) to the root.
+	 *
+	 * @param o object to be checked in the tree
+	 * @return true if the tree contains the object
+	 * @throws NullPointerException if the specified element is null
+	 * @throws ClassCastException if the specified object cannot be compared with the elements currently in the tree
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains (Object o) throws NullPointerException, ClassCastException {
+		if (o == null) {
+			throw new NullPointerException("The tree does not contain null elements.");
+		}
+		if (root == null) {
+			return false;
+		}
+		E e = (E) o;
+		long prefix = prefixOf(e);
+		root = splay(root, e, prefix);
+		return compare(e, prefix, root) == 0;
+	}
+
+	/**
+	 * Returns the least element greater than or equal to e, or null if there is no such element.
+	 * The tree is splayed at e: the answer is the root or the lowest element of its right subtree.
+	 * @param e the value to match
+	 * @throws ClassCastException if the specified element cannot be compared with the elements currently in the tree
+	 * @throws NullPointerException if the specified element is null
+	 */
+	@Override
+	public E ceiling (E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the ceiling for null value.");
+		}
+		return above(e, true);
+	}
+
+	/**
+	 * Returns the least element strictly greater than e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws ClassCastException if the specified element cannot be compared with the elements currently in the tree
+	 * @throws NullPointerException if the specified element is null
+	 */
+	@Override
+	public E higher (E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the least higher element for null value.");
+		}
+		return above(e, false);
+	}
+
+	/**
+	 * Returns the greatest element less than or equal to e, or null if there is no such element.
+	 * The tree is splayed at e: the answer is the root or the highest element of its left subtree.
+	 * @param e the value to match
+	 * @throws ClassCastException if the specified element cannot be compared with the elements currently in the tree
+	 * @throws NullPointerException if the specified element is null
+	 */
+	@Override
+	public E floor (E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the floor for null value.");
+		}
+		return below(e, true);
+	}
+
+	/**
+	 * Returns the greatest element strictly less than e, or null if there is no such element.
+	 * @param e the value to match
+	 * @throws ClassCastException if the specified element cannot be compared with the elements currently in the tree
+	 * @throws NullPointerException if the specified element is null
+	 */
+	@Override
+	public E lower (E e) throws ClassCastException, NullPointerException {
+		if (e == null) {
+			throw new NullPointerException("Cannot find the closest lower element for null value.");
+		}
+		return below(e, false);
+	}
+
+	/**
+	 * Splays the tree at e. The root is then the last node of the search
+	 * path, so the least element above e is either the root or the lowest
+	 * element of the right subtree.
+	 */
+	private E above (E e, boolean inclusive) {
+		if (root == null) {
+			return null;
+		}
+		long prefix = prefixOf(e);
+		root = splay(root, e, prefix);
+		int cmp = compare(e, prefix, root);
+		if (cmp < 0 || (inclusive && cmp == 0)) {
+			return root.data;
+		}
+		BSTNode node = root.right;
+		if (node == null) {
+			return null;
+		}
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node.data;
+	}
+
+	/**
+	 * Splays the tree at e and finds the greatest element below e at the
+	 * root or at the end of the right spine of the left subtree.
+	 */
+	private E below (E e, boolean inclusive) {
+		if (root == null) {
+			return null;
+		}
+		long prefix = prefixOf(e);
+		root = splay(root, e, prefix);
+		int cmp = compare(e, prefix, root);
+		if (cmp > 0 || (inclusive && cmp == 0)) {
+			return root.data;
+		}
+		BSTNode node = root.left;
+		if (node == null) {
+			return null;
+		}
+		while (node.right != null) {
+			node = node.right;
+		}
+		return node.data;
+	}
+
+	/**
+	 * Trees built from this one, like the result of union, splay too.
+	 */
+	@Override
+	protected BST<E> newTree () {
+		return new SplayBST<>(comparator, keyPrefix);
+	}
+
+	/**
+	 * Top-down splay of the subtree at e. Going down, the nodes greater
+	 * than e are hung into a right tree along its left spine and the nodes
+	 * less than e into a left tree along its right spine; two steps in the
+	 * same direction first rotate the upper node down (a left left or right
+	 * right rotation). The last node reached becomes the root, with the left
+	 * tree and the right tree as its subtrees.
+	 *
+	 * @param node root of the subtree, not null
+	 * @param e element to look for
+	 * @param prefix prefix of the element
+	 * @return the new root of the subtree: the node of e if it is there,
+	 *  otherwise the node of its successor or its predecessor in the subtree
+	 */
+	private BSTNode splay (BSTNode node, E e, long prefix) {
+		BSTNode t = editable(node);
+		int size = t.size; //the splay changes the shape, not the content
+		long hash = t.hash;
+		BSTNode leftRoot = null;
+		BSTNode leftMax = null; //lowest node of the right spine of the left tree
+		BSTNode rightRoot = null;
+		BSTNode rightMin = null; //lowest node of the left spine of the right tree
+		int cmp = compare(e, prefix, t);
+		while (cmp != 0) {
+			if (cmp < 0) {
+				if (t.left == null)
+					break;
+				int childCmp = compare(e, prefix, t.left);
+				if (childCmp < 0 && t.left.left != null) {
+					t = rotateLL(t);
+					childCmp = compare(e, prefix, t.left);
+				}
+				// link t into the right tree, it goes above everything left to visit
+				if (rightMin == null)
+					rightRoot = t;
+				else
+					rightMin.left = t;
+				rightMin = t;
+				rightSpine.add(t, ownHash(t));
+				t = editable(t.left);
+				cmp = childCmp;
+			}
+			else {
+				if (t.right == null)
+					break;
+				int childCmp = compare(e, prefix, t.right);
+				if (childCmp > 0 && t.right.right != null) {
+					t = rotateRR(t);
+					childCmp = compare(e, prefix, t.right);
+				}
+				// link t into the left tree
+				if (leftMax == null)
+					leftRoot = t;
+				else
+					leftMax.right = t;
+				leftMax = t;
+				leftSpine.add(t, ownHash(t));
+				t = editable(t.right);
+				cmp = childCmp;
+			}
+		}
+		// join the subtrees of t to the two trees and the two trees to t
+		if (leftMax != null) {
+			leftMax.right = t.left;
+			t.left = leftRoot;
+		}
+		if (rightMin != null) {
+			rightMin.left = t.right;
+			t.right = rightRoot;
+		}
+		// only the spines changed, the lowest nodes are updated first
+		leftSpine.update();
+		rightSpine.update();
+		t.size = size;
+		t.hash = hash;
+		t.updateHeight();
+		return t;
+	}
+
+	/**
+	 * Performs left left rotation on a node. The new root takes the size and
+	 * hash of the subtree, its height is updated by the splay once its left
+	 * child is known.
+	 * @param A node is the root of the subtree to be rotated.
+	 * @return pointer for the new root of the rotated subtree.
+	 */
+	private BSTNode rotateLL (BSTNode A) {
+		BSTNode B = editable(A.left); // copy left child of A
+		long own = ownHash(A);
+		A.left = B.right; // left point A to right child of B
+		B.right = A; // right point B to A
+		B.size = A.size;
+		B.hash = A.hash;
+		set(A, own);
+		return B;
+	}
+
+	/**
+	 * Performs right right rotation on a node, like rotateLL.
+	 * @param A node is the root of the subtree to be rotated.
+	 * @return pointer for the new root of the rotated subtree.
+	 */
+	private BSTNode rotateRR (BSTNode A) {
+		BSTNode B = editable(A.right); // copy right child of A
+		long own = ownHash(A);
+		A.right = B.left; // right point A to left child of B
+		B.left = A; // left point B to A
+		B.size = A.size;
+		B.hash = A.hash;
+		set(A, own);
+		return B;
+	}
+
+	/**
+	 * Returns the hash of the element of a node alone: its subtree hash
+	 * minus the hashes of its children. The subtree hash has to be up to date.
+	 */
+	private long ownHash (BSTNode node) {
+		long own = node.hash;
+		if (node.left != null)
+			own -= node.left.hash;
+		if (node.right != null)
+			own -= node.right.hash;
+		return own;
+	}
+
+	/**
+	 * Recomputes the height, size and content hash of a node whose
+	 * children changed, from the hash of its own element.
+	 */
+	private void set (BSTNode node, long own) {
+		node.updateHeight();
+		node.updateSize();
+		if (node.left != null)
+			own += node.left.hash;
+		if (node.right != null)
+			own += node.right.hash;
+		node.hash = own;
+	}
+
+	/**
+	 * Recomputes the height, size and content hash of a node from its children.
+	 * @param node node to be updated
+	 */
+	private void update (BSTNode node) {
+		node.updateHeight();
+		node.updateSize();
+		node.updateHash();
+	}
+
+	/**
+	 * This class represents the nodes hung along one spine of the left or the
+	 * right tree during a splay, with the hash of their own elements.
+	 */
+	private class Spine {
+
+		private Object[] nodes = new Object[64];
+		private long[] own = new long[64];
+		private int size;
+
+		void add(BSTNode node, long ownHash) {
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size * 2);
+				own = Arrays.copyOf(own, size * 2);
+			}
+			nodes[size] = node;
+			own[size++] = ownHash;
+		}
+
+		/**
+		 * Updates the nodes from the lowest one up and empties the spine.
+		 */
+		@SuppressWarnings("unchecked")
+		void update() {
+			while (size > 0) {
+				size--;
+				set((BSTNode) nodes[size], own[size]);
+				nodes[size] = null;
+			}
+		}
+	}
+}